@@ -0,0 +1,144 @@
+package ru.practicum.ewm.bench;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.ewm.EwmApplication;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Threads(64)
+@Fork(1)
+public class EventReadBenchmark {
+    private static final int EVENTS = 100;
+
+    @Param({"false", "true"})
+    private boolean virtualThreads;
+
+    @Param({"10", "50"})
+    private int poolSize;
+
+    @Param({"20"})
+    private int statsLatencyMillis;
+
+    private EmbeddedPostgres postgres;
+    private HttpServer statsServer;
+    private ExecutorService statsExecutor;
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        postgres = EmbeddedPostgres.builder().start();
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        statsExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        statsServer = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+        statsServer.createContext("/", this::handleStats);
+        statsServer.setExecutor(statsExecutor);
+        statsServer.start();
+        context = SpringApplication.run(EwmApplication.class,
+                "--server.port=0",
+                "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=postgres",
+                "--spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--stats-server.url=http://localhost:" + statsServer.getAddress().getPort(),
+                "--logging.level.root=WARN",
+                "--logging.level.org.hibernate.SQL=WARN");
+        seed(context.getBean(JdbcTemplate.class));
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        statsServer.stop(0);
+        statsExecutor.close();
+        postgres.close();
+    }
+
+    @Benchmark
+    public String getEvent() throws IOException, InterruptedException {
+        return get("/events/" + ThreadLocalRandom.current().nextInt(1, EVENTS + 1));
+    }
+
+    @Benchmark
+    public String getEvents() throws IOException, InterruptedException {
+        return get("/events?from=0&size=10");
+    }
+
+    private String get(String path) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + path)).build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(path + " returned " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            Thread.sleep(statsLatencyMillis);
+            if ("GET".equals(exchange.getRequestMethod())) {
+                byte[] body = "[]".getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } else {
+                exchange.getRequestBody().readAllBytes();
+                exchange.sendResponseHeaders(201, -1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void seed(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.update("INSERT INTO users (email, name) VALUES ('bench@example.com', 'bench')");
+        jdbcTemplate.update("INSERT INTO categories (name) VALUES ('bench')");
+        jdbcTemplate.update("INSERT INTO events (annotation, category_id, created_on, description, event_date, " +
+                "initiator_id, lat, lon, paid, participant_limit, published_on, request_moderation, state, title) " +
+                "SELECT 'annotation ' || g, 1, now(), 'description ' || g, now() + g * interval '1 day', 1, 0, 0, " +
+                "false, 0, now(), false, 'PUBLISHED', 'event ' || g FROM generate_series(1, ?) g", EVENTS);
+    }
+}
@@ -2,6 +2,7 @@ package ru.practicum.ewm.event.service;
 
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -27,6 +28,7 @@ import ru.practicum.ewm.request.repository.ParticipationRequestRepository;
 import ru.practicum.ewm.user.model.User;
 import ru.practicum.ewm.user.repository.UserRepository;
 import ru.practicum.stats.client.StatsClient;
+import ru.practicum.stats.client.StatsUnavailableException;
 import ru.practicum.stats.dto.EndpointHitDto;
 import ru.practicum.stats.dto.ViewStatsDto;
 
@@ -38,6 +40,7 @@ import java.util.Map;
 import java.util.stream.Collectors;
 
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
@@ -287,12 +290,7 @@ public class EventServiceImpl implements EventService {
     }
 
     private Long getViews(Long eventId) {
-        List<ViewStatsDto> responseBody = statsClient.getStats(
-                LocalDateTime.of(2000, 1, 1, 0, 0),
-                LocalDateTime.of(2100, 1, 1, 0, 0),
-                List.of("/events/" + eventId),
-                true
-        ).getBody();
+        List<ViewStatsDto> responseBody = findViews(List.of("/events/" + eventId));
 
         if (responseBody != null && !responseBody.isEmpty()) {
             return responseBody.getFirst().getHits();
@@ -304,12 +302,7 @@ public class EventServiceImpl implements EventService {
         List<String> uris = eventIds.stream()
                 .map(id -> String.format("/events/%s", id))
                 .toList();
-        List<ViewStatsDto> responseBody = statsClient.getStats(
-                LocalDateTime.of(2000, 1, 1, 0, 0),
-                LocalDateTime.of(2100, 1, 1, 0, 0),
-                uris,
-                true
-        ).getBody();
+        List<ViewStatsDto> responseBody = findViews(uris);
 
         Map<Long, Long> viewsMap = new HashMap<>();
         if (responseBody != null) {
@@ -326,4 +319,18 @@ public class EventServiceImpl implements EventService {
 
         return viewsMap;
     }
+
+    private List<ViewStatsDto> findViews(List<String> uris) {
+        try {
+            return statsClient.getStats(
+                    LocalDateTime.of(2000, 1, 1, 0, 0),
+                    LocalDateTime.of(2100, 1, 1, 0, 0),
+                    uris,
+                    true
+            ).getBody();
+        } catch (StatsUnavailableException e) {
+            log.warn("Stats server is unavailable, showing zero views: {}", e.getMessage());
+            return Collections.emptyList();
+        }
+    }
 }
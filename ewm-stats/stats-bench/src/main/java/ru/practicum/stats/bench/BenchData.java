@@ -0,0 +1,31 @@
+package ru.practicum.stats.bench;
+
+import ru.practicum.stats.dto.EndpointHitDto;
+
+import java.time.LocalDateTime;
+
+final class BenchData {
+    static final String APP = "ewm-main-service";
+    static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    static final int URIS = 500;
+
+    private BenchData() {
+    }
+
+    static String uri(int i) {
+        return "/events/" + i % URIS;
+    }
+
+    static String ip(int i) {
+        return "10." + (i >> 16 & 0xff) + "." + (i >> 8 & 0xff) + "." + (i & 0xff);
+    }
+
+    static EndpointHitDto hitDto(int i) {
+        return EndpointHitDto.builder()
+                .app(APP)
+                .uri(uri(i))
+                .ip(ip(i % 50_000))
+                .timestamp(START.plusSeconds(i * 7L % (90L * 24 * 3600)))
+                .build();
+    }
+}
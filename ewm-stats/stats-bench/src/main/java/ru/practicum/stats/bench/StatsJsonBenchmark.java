@@ -0,0 +1,82 @@
+package ru.practicum.stats.bench;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.ViewStatsDto;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatsJsonBenchmark {
+    @Param({"10", "1000"})
+    private int statsSize;
+
+    private ObjectWriter hitWriter;
+    private ObjectReader hitReader;
+    private ObjectWriter statsWriter;
+    private ObjectReader statsReader;
+    private EndpointHitDto hit;
+    private byte[] hitJson;
+    private List<ViewStatsDto> stats;
+    private byte[] statsJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+        hitWriter = objectMapper.writerFor(EndpointHitDto.class);
+        hitReader = objectMapper.readerFor(EndpointHitDto.class);
+        TypeReference<List<ViewStatsDto>> statsType = new TypeReference<>() {
+        };
+        statsWriter = objectMapper.writerFor(statsType);
+        statsReader = objectMapper.readerFor(statsType);
+        hit = BenchData.hitDto(42);
+        hitJson = hitWriter.writeValueAsBytes(hit);
+        stats = IntStream.range(0, statsSize)
+                .mapToObj(i -> new ViewStatsDto(BenchData.APP, BenchData.uri(i), (long) statsSize - i))
+                .toList();
+        statsJson = statsWriter.writeValueAsBytes(stats);
+    }
+
+    @Benchmark
+    public byte[] writeEndpointHit() throws IOException {
+        return hitWriter.writeValueAsBytes(hit);
+    }
+
+    @Benchmark
+    public EndpointHitDto readEndpointHit() throws IOException {
+        return hitReader.readValue(hitJson);
+    }
+
+    @Benchmark
+    public byte[] writeViewStats() throws IOException {
+        return statsWriter.writeValueAsBytes(stats);
+    }
+
+    @Benchmark
+    public List<ViewStatsDto> readViewStats() throws IOException {
+        return statsReader.readValue(statsJson);
+    }
+}
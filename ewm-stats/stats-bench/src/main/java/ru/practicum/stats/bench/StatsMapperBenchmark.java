@@ -0,0 +1,61 @@
+package ru.practicum.stats.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.mapper.StatsMapper;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.model.ViewStats;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatsMapperBenchmark {
+    @Param({"10", "1000"})
+    private int statsSize;
+
+    private EndpointHitDto hitDto;
+    private EndpointHit hit;
+    private List<ViewStats> stats;
+
+    @Setup
+    public void setUp() {
+        hitDto = BenchData.hitDto(42);
+        hit = StatsMapper.toEndpointHit(hitDto);
+        stats = IntStream.range(0, statsSize)
+                .mapToObj(i -> new ViewStats(BenchData.APP, BenchData.uri(i), (long) statsSize - i))
+                .toList();
+    }
+
+    @Benchmark
+    public EndpointHit toEndpointHit() {
+        return StatsMapper.toEndpointHit(hitDto);
+    }
+
+    @Benchmark
+    public EndpointHitDto toEndpointHitDto() {
+        return StatsMapper.toEndpointHitDto(hit);
+    }
+
+    @Benchmark
+    public List<ViewStatsDto> toViewStatsDtos() {
+        return StatsMapper.toViewStatsDtos(stats);
+    }
+}
@@ -0,0 +1,109 @@
+package ru.practicum.stats.bench;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.StatsApplication;
+import ru.practicum.stats.server.service.StatsService;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class StatsServiceBenchmark {
+    private static final int BATCH_SIZE = 100;
+    private static final LocalDateTime END = BenchData.START.plusDays(90);
+
+    @Param({"100000"})
+    private int preloaded;
+
+    @Param({"false", "true"})
+    private boolean async;
+
+    @Param({"false", "true"})
+    private boolean cached;
+
+    private final AtomicInteger sequence = new AtomicInteger();
+    private EmbeddedPostgres postgres;
+    private ConfigurableApplicationContext context;
+    private StatsService statsService;
+    private List<String> uris;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        postgres = EmbeddedPostgres.builder().start();
+        context = SpringApplication.run(StatsApplication.class,
+                "--spring.main.web-application-type=none",
+                "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres") + "&reWriteBatchedInserts=true",
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=postgres",
+                "--logging.level.root=WARN",
+                "--stats.ingest.async=" + async,
+                "--stats.hot-counters.enabled=" + cached,
+                "--stats.query-cache.enabled=" + cached);
+        statsService = context.getBean(StatsService.class);
+        statsService.saveHits(IntStream.range(0, preloaded).mapToObj(BenchData::hitDto).iterator());
+        sequence.set(preloaded);
+        uris = IntStream.range(0, 10).mapToObj(BenchData::uri).toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        postgres.close();
+    }
+
+    @Benchmark
+    public void saveHit() {
+        statsService.saveHit(BenchData.hitDto(sequence.getAndIncrement()));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int saveHits() {
+        int first = sequence.getAndAdd(BATCH_SIZE);
+        List<EndpointHitDto> batch = IntStream.range(first, first + BATCH_SIZE).mapToObj(BenchData::hitDto).toList();
+        return statsService.saveHits(batch.iterator());
+    }
+
+    @Benchmark
+    public Collection<ViewStatsDto> getStatistics() {
+        return statsService.getStatistics(BenchData.START, END, null, false, false);
+    }
+
+    @Benchmark
+    public Collection<ViewStatsDto> getUniqueStatisticsForUris() {
+        return statsService.getStatistics(BenchData.START, END, uris, true, false);
+    }
+
+    @Benchmark
+    public Collection<ViewStatsDto> getApproxUniqueStatistics() {
+        return statsService.getStatistics(BenchData.START, END, null, true, true);
+    }
+}
@@ -0,0 +1,214 @@
+package ru.practicum.stats.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
+import ru.practicum.stats.dto.EndpointHitDto;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+@Slf4j
+class AsyncHitSender {
+    private static final int MAX_RETRY_AFTER_DIGITS = 9;
+
+    private final StatsClientProperties properties;
+    private final Consumer<List<EndpointHitDto>> sender;
+    private final BlockingQueue<EndpointHitDto> buffer;
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+    private final Counter droppedCounter;
+    private final Counter syncCounter;
+    private final Counter retryCounter;
+    private final DistributionSummary batchSizes;
+    private final boolean virtualThreads;
+    private volatile boolean running;
+    private Thread senderThread;
+
+    AsyncHitSender(StatsClientProperties properties, Consumer<List<EndpointHitDto>> sender, boolean virtualThreads,
+                   MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.sender = sender;
+        this.virtualThreads = virtualThreads;
+        this.buffer = new ArrayBlockingQueue<>(properties.getBufferCapacity());
+        this.sentCounter = hits(meterRegistry, "sent");
+        this.failedCounter = hits(meterRegistry, "failed");
+        this.droppedCounter = hits(meterRegistry, "dropped");
+        this.syncCounter = hits(meterRegistry, "sync");
+        this.retryCounter = Counter.builder("stats.client.retries")
+                .description("Повторные попытки отправить пачку вызовов")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("stats.client.batch.size")
+                .description("Количество вызовов в одном запросе к серверу статистики")
+                .register(meterRegistry);
+        Gauge.builder("stats.client.buffer.size", buffer, BlockingQueue::size)
+                .description("Вызовы, ожидающие отправки на сервер статистики")
+                .register(meterRegistry);
+    }
+
+    boolean offer(EndpointHitDto hit) {
+        if (!running) {
+            return false;
+        }
+        if (buffer.offer(hit)) {
+            return true;
+        }
+        switch (properties.getOverflow()) {
+            case DROP_NEWEST -> droppedCounter.increment();
+            case DROP_OLDEST -> {
+                while (!buffer.offer(hit)) {
+                    if (buffer.poll() != null) {
+                        droppedCounter.increment();
+                    }
+                }
+            }
+            case SEND_SYNC -> {
+                syncCounter.increment();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void start() {
+        running = true;
+        Thread.Builder builder = virtualThreads ? Thread.ofVirtual() : Thread.ofPlatform().daemon();
+        senderThread = builder.name("stats-client-sender").start(this::sendLoop);
+    }
+
+    void stop() {
+        if (senderThread == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(senderThread);
+        try {
+            senderThread.join(properties.getShutdownTimeout().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!buffer.isEmpty()) {
+            log.warn("{} вызовов не отправлено на сервер статистики до остановки", buffer.size());
+            droppedCounter.increment(buffer.size());
+            buffer.clear();
+        }
+        senderThread = null;
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    private void sendLoop() {
+        List<EndpointHitDto> batch = new ArrayList<>(properties.getBatchSize());
+        while (running || !buffer.isEmpty()) {
+            try {
+                fillBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            try {
+                send(batch);
+            } catch (RuntimeException e) {
+                failedCounter.increment(batch.size());
+                log.error("Не удалось отправить {} вызовов на сервер статистики", batch.size(), e);
+                batch.clear();
+            }
+        }
+    }
+
+    private void fillBatch(List<EndpointHitDto> batch) throws InterruptedException {
+        long flushIntervalNanos = properties.getFlushInterval().toNanos();
+        EndpointHitDto first = buffer.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (batch.size() < properties.getBatchSize()) {
+            buffer.drainTo(batch, properties.getBatchSize() - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= properties.getBatchSize() || remaining <= 0 || !running) {
+                return;
+            }
+            EndpointHitDto next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void send(List<EndpointHitDto> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Duration backoff = properties.getRetryBackoff();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                sender.accept(batch);
+                sentCounter.increment(batch.size());
+                batchSizes.record(batch.size());
+                break;
+            } catch (RestClientException e) {
+                if (attempt >= properties.getMaxAttempts() || !isRetryable(e)) {
+                    failedCounter.increment(batch.size());
+                    log.warn("Не удалось отправить {} вызовов на сервер статистики за {} попыток: {}",
+                            batch.size(), attempt, e.getMessage());
+                    break;
+                }
+                retryCounter.increment();
+                Duration delay = retryAfter(e).orElse(backoff);
+                LockSupport.parkNanos(min(delay, properties.getMaxRetryBackoff()).toNanos());
+                backoff = min(backoff.multipliedBy(2), properties.getMaxRetryBackoff());
+            }
+        }
+        batch.clear();
+    }
+
+    private static boolean isRetryable(RestClientException e) {
+        if (e instanceof ResourceAccessException) {
+            return true;
+        }
+        return e instanceof RestClientResponseException response
+                && (response.getStatusCode().is5xxServerError()
+                || response.getStatusCode().isSameCodeAs(HttpStatus.TOO_MANY_REQUESTS));
+    }
+
+    private static Optional<Duration> retryAfter(RestClientException e) {
+        if (e instanceof RestClientResponseException response && response.getResponseHeaders() != null) {
+            String value = response.getResponseHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+            if (value != null && !value.isEmpty() && value.length() <= MAX_RETRY_AFTER_DIGITS
+                    && value.chars().allMatch(Character::isDigit)) {
+                return Optional.of(Duration.ofSeconds(Long.parseLong(value)));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    private static Counter hits(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("stats.client.hits")
+                .description("Вызовы, переданные фоновой отправке, по результату")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,29 @@
+package ru.practicum.stats.client;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+class GzipRequestInterceptor implements ClientHttpRequestInterceptor {
+    static final String GZIP = "gzip";
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        if (!GZIP.equals(request.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING))) {
+            return execution.execute(request, body);
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(body.length / 4, 64));
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(body);
+        }
+        request.getHeaders().setContentLength(compressed.size());
+        return execution.execute(request, compressed.toByteArray());
+    }
+}
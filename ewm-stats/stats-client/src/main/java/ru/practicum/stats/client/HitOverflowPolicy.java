@@ -0,0 +1,7 @@
+package ru.practicum.stats.client;
+
+public enum HitOverflowPolicy {
+    DROP_NEWEST,
+    DROP_OLDEST,
+    SEND_SYNC
+}
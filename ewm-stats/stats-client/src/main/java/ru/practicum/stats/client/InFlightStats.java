@@ -0,0 +1,88 @@
+package ru.practicum.stats.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import ru.practicum.stats.dto.ViewStatsDto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+class InFlightStats {
+    private final Map<Key, CompletableFuture<List<ViewStatsDto>>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalescedCalls;
+    private final Counter coalescedUris;
+
+    InFlightStats(MeterRegistry meterRegistry) {
+        this.coalescedCalls = Counter.builder("stats.client.stats.coalesced.calls")
+                .description("Запросы статистики, дождавшиеся чужого запроса")
+                .register(meterRegistry);
+        this.coalescedUris = Counter.builder("stats.client.stats.coalesced.uris")
+                .description("Uri, ответ по которым взят из чужого выполняющегося запроса")
+                .register(meterRegistry);
+    }
+
+    List<ViewStatsDto> fetch(LocalDateTime start, LocalDateTime end, boolean unique, Collection<String> uris,
+                             Function<List<String>, List<ViewStatsDto>> loader) {
+        Map<String, CompletableFuture<List<ViewStatsDto>>> owned = new LinkedHashMap<>();
+        List<CompletableFuture<List<ViewStatsDto>>> joined = new ArrayList<>();
+        for (String uri : new LinkedHashSet<>(uris)) {
+            CompletableFuture<List<ViewStatsDto>> created = new CompletableFuture<>();
+            CompletableFuture<List<ViewStatsDto>> existing = inFlight.putIfAbsent(new Key(start, end, unique, uri),
+                    created);
+            if (existing == null) {
+                owned.put(uri, created);
+            } else {
+                joined.add(existing);
+            }
+        }
+        if (!joined.isEmpty()) {
+            coalescedCalls.increment();
+            coalescedUris.increment(joined.size());
+        }
+        List<ViewStatsDto> stats = new ArrayList<>();
+        if (!owned.isEmpty()) {
+            stats.addAll(load(start, end, unique, owned, loader));
+        }
+        for (CompletableFuture<List<ViewStatsDto>> future : joined) {
+            try {
+                stats.addAll(future.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+        return stats;
+    }
+
+    private List<ViewStatsDto> load(LocalDateTime start, LocalDateTime end, boolean unique,
+                                    Map<String, CompletableFuture<List<ViewStatsDto>>> owned,
+                                    Function<List<String>, List<ViewStatsDto>> loader) {
+        try {
+            List<ViewStatsDto> loaded = loader.apply(List.copyOf(owned.keySet()));
+            Map<String, List<ViewStatsDto>> byUri = loaded.stream()
+                    .collect(Collectors.groupingBy(ViewStatsDto::getUri));
+            owned.forEach((uri, future) -> future.complete(byUri.getOrDefault(uri, List.of())));
+            return loaded;
+        } catch (Throwable e) {
+            owned.values().forEach(future -> future.completeExceptionally(e));
+            throw e;
+        } finally {
+            owned.forEach((uri, future) -> inFlight.remove(new Key(start, end, unique, uri), future));
+        }
+    }
+
+    private record Key(LocalDateTime start, LocalDateTime end, boolean unique, String uri) {
+    }
+}
@@ -0,0 +1,90 @@
+package ru.practicum.stats.client;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Slf4j
+class StatsCircuitBreaker {
+    enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+    private boolean probing;
+
+    StatsCircuitBreaker(int failureThreshold, Duration openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    State getState() {
+        return state;
+    }
+
+    boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        lock.lock();
+        try {
+            if (state == State.OPEN) {
+                if (System.nanoTime() - openedAt < openNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probing = false;
+            }
+            if (state == State.HALF_OPEN) {
+                if (probing) {
+                    return false;
+                }
+                probing = true;
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void onSuccess() {
+        if (state == State.CLOSED && failures == 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (state != State.CLOSED) {
+                log.info("Сервер статистики снова доступен, запросы возобновлены");
+            }
+            state = State.CLOSED;
+            failures = 0;
+            probing = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void onFailure() {
+        lock.lock();
+        try {
+            failures++;
+            if (state == State.HALF_OPEN || state == State.CLOSED && failures >= failureThreshold) {
+                log.warn("Сервер статистики ответил ошибкой {} раз подряд, запросы приостановлены на {} мс", failures,
+                        openNanos / 1_000_000);
+                state = State.OPEN;
+                openedAt = System.nanoTime();
+                probing = false;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
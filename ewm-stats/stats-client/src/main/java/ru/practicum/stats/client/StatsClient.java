@@ -1,15 +1,24 @@
 package ru.practicum.stats.client;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.env.Environment;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 import ru.practicum.stats.dto.EndpointHitDto;
@@ -17,27 +26,89 @@ import ru.practicum.stats.dto.ViewStatsDto;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 
+@Slf4j
 @Service
-public class StatsClient {
+public class StatsClient implements SmartLifecycle {
     private final RestTemplate rest;
+    private final StatsClientProperties properties;
+    private final AsyncHitSender hitSender;
+    private final StatsCircuitBreaker circuitBreaker;
+    private final ViewCache viewCache;
+    private final InFlightStats inFlight;
+    private final Counter openFallbacks;
+    private final Counter errorFallbacks;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final Counter cacheRefreshes;
     private final DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     @Autowired
-    public StatsClient(@Value("${stats-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public StatsClient(@Value("${stats-server.url}") String serverUrl, RestTemplateBuilder builder,
+                       StatsClientProperties properties, Environment environment, MeterRegistry meterRegistry) {
         this.rest = builder
                 .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl))
+                .additionalInterceptors(new GzipRequestInterceptor())
+                .setConnectTimeout(properties.getConnectTimeout())
+                .setReadTimeout(properties.getReadTimeout())
                 .build();
+        this.properties = properties;
+        this.hitSender = new AsyncHitSender(properties, this::sendHits, Threading.VIRTUAL.isActive(environment),
+                meterRegistry);
+        this.circuitBreaker = new StatsCircuitBreaker(properties.getCircuitFailureThreshold(),
+                properties.getCircuitOpenDuration());
+        this.viewCache = new ViewCache(properties.getViewCacheMaxEntries(), properties.getViewCacheTtl(),
+                properties.getViewCacheRefreshAfter());
+        this.inFlight = new InFlightStats(meterRegistry);
+        this.openFallbacks = fallbacks(meterRegistry, "open");
+        this.errorFallbacks = fallbacks(meterRegistry, "error");
+        this.cacheHits = cacheLookups(meterRegistry, "hit");
+        this.cacheMisses = cacheLookups(meterRegistry, "miss");
+        this.cacheRefreshes = cacheLookups(meterRegistry, "refresh");
+        Gauge.builder("stats.client.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("Состояние выключателя запросов статистики: 0 закрыт, 1 открыт, 2 полуоткрыт")
+                .register(meterRegistry);
     }
 
     public ResponseEntity<List<ViewStatsDto>> getStats(LocalDateTime start,
                                                        LocalDateTime end,
                                                        Collection<String> uris,
                                                        Boolean unique) {
+        if (!properties.isViewCacheEnabled() || uris.isEmpty()) {
+            return ResponseEntity.ok(sorted(fetchStats(start, end, uris, unique)));
+        }
+        ViewCache.Lookup lookup = viewCache.lookup(start, end, unique, uris);
+        cacheHits.increment(uris.size() - lookup.missing.size());
+        cacheMisses.increment(lookup.missing.size());
+        if (!lookup.refresh.isEmpty()) {
+            cacheRefreshes.increment(lookup.refresh.size());
+            Thread.ofVirtual()
+                    .name("stats-client-refresh")
+                    .start(() -> refreshStats(start, end, lookup.refresh, unique));
+        }
+        List<ViewStatsDto> stats = lookup.stats;
+        if (!lookup.missing.isEmpty()) {
+            stats.addAll(fetchStats(start, end, lookup.missing, unique));
+        }
+        return ResponseEntity.ok(sorted(stats));
+    }
+
+    private List<ViewStatsDto> fetchStats(LocalDateTime start, LocalDateTime end, Collection<String> uris,
+                                          Boolean unique) {
+        if (uris.isEmpty()) {
+            return loadStats(start, end, uris, unique);
+        }
+        return inFlight.fetch(start, end, unique, uris, missing -> loadStats(start, end, missing, unique));
+    }
+
+    private List<ViewStatsDto> loadStats(LocalDateTime start, LocalDateTime end, Collection<String> uris,
+                                         Boolean unique) {
         Map<String, Object> parameters = Map.of(
                 "start", start.format(dateTimeFormatter),
                 "end", end.format(dateTimeFormatter),
@@ -45,16 +116,61 @@ public class StatsClient {
                 "unique", unique
         );
 
-        return rest.exchange(
-                "/stats?start={start}&end={end}&uris={uris}&unique={unique}",
-                HttpMethod.GET,
-                new HttpEntity<>(defaultHeaders()),
-                new ParameterizedTypeReference<List<ViewStatsDto>>() {},
-                parameters
-        );
+        if (!circuitBreaker.tryAcquire()) {
+            List<ViewStatsDto> stale = viewCache.getStale(start, end, unique, uris)
+                    .orElseThrow(() -> new StatsUnavailableException(
+                            "Запросы к серверу статистики приостановлены, и для " + uris
+                                    + " нет последних известных просмотров"));
+            openFallbacks.increment();
+            return stale;
+        }
+        List<ViewStatsDto> stats;
+        try {
+            stats = rest.exchange(
+                    "/stats?start={start}&end={end}&uris={uris}&unique={unique}",
+                    HttpMethod.GET,
+                    new HttpEntity<>(defaultHeaders()),
+                    new ParameterizedTypeReference<List<ViewStatsDto>>() {},
+                    parameters
+            ).getBody();
+        } catch (HttpClientErrorException e) {
+            circuitBreaker.onSuccess();
+            throw e;
+        } catch (RestClientException e) {
+            circuitBreaker.onFailure();
+            List<ViewStatsDto> stale = viewCache.getStale(start, end, unique, uris).orElseThrow(() -> e);
+            errorFallbacks.increment();
+            log.warn("Не удалось получить статистику, отдаются последние известные просмотры: {}", e.getMessage());
+            return stale;
+        } catch (RuntimeException e) {
+            circuitBreaker.onFailure();
+            throw e;
+        }
+        circuitBreaker.onSuccess();
+        if (stats == null) {
+            return new ArrayList<>();
+        }
+        viewCache.put(start, end, unique, uris, stats);
+        return new ArrayList<>(stats);
+    }
+
+    private void refreshStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
+        try {
+            fetchStats(start, end, uris, unique);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось обновить просмотры {}: {}", uris, e.getMessage());
+        } finally {
+            viewCache.endRefresh(start, end, unique, uris);
+        }
     }
 
     public void postHit(EndpointHitDto hitDto) {
+        if (!hitSender.offer(hitDto)) {
+            sendHit(hitDto);
+        }
+    }
+
+    private void sendHit(EndpointHitDto hitDto) {
         rest.exchange(
                 "/hit",
                 HttpMethod.POST,
@@ -63,6 +179,67 @@ public class StatsClient {
         );
     }
 
+    public void postHits(Collection<EndpointHitDto> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        sendHits(hits);
+    }
+
+    private void sendHits(Collection<EndpointHitDto> hits) {
+        HttpHeaders headers = defaultHeaders();
+        if (properties.isCompress()) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, GzipRequestInterceptor.GZIP);
+        }
+        rest.exchange(
+                "/hits",
+                HttpMethod.POST,
+                new HttpEntity<>(hits, headers),
+                Void.class
+        );
+    }
+
+    @Override
+    public void start() {
+        if (properties.isAsync()) {
+            hitSender.start();
+        }
+    }
+
+    @Override
+    public void stop() {
+        hitSender.stop();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return hitSender.isRunning();
+    }
+
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE - 4096;
+    }
+
+    private static Counter fallbacks(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("stats.client.stats.fallback")
+                .description("Запросы статистики, обслуженные последними известными просмотрами")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private static Counter cacheLookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("stats.client.view.cache")
+                .description("Поиски uri в кэше просмотров")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static List<ViewStatsDto> sorted(List<ViewStatsDto> stats) {
+        stats.sort(Comparator.comparing(ViewStatsDto::getHits).reversed());
+        return stats;
+    }
+
     private HttpHeaders defaultHeaders() {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
@@ -0,0 +1,31 @@
+package ru.practicum.stats.client;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats-client")
+public class StatsClientProperties {
+    private Duration connectTimeout = Duration.ofMillis(500);
+    private Duration readTimeout = Duration.ofSeconds(2);
+    private int circuitFailureThreshold = 5;
+    private Duration circuitOpenDuration = Duration.ofSeconds(10);
+    private boolean viewCacheEnabled = false;
+    private int viewCacheMaxEntries = 10_000;
+    private Duration viewCacheTtl = Duration.ofSeconds(10);
+    private Duration viewCacheRefreshAfter = Duration.ofSeconds(5);
+    private boolean async = false;
+    private int bufferCapacity = 10_000;
+    private HitOverflowPolicy overflow = HitOverflowPolicy.DROP_NEWEST;
+    private int batchSize = 500;
+    private Duration flushInterval = Duration.ofMillis(200);
+    private boolean compress = true;
+    private int maxAttempts = 5;
+    private Duration retryBackoff = Duration.ofMillis(200);
+    private Duration maxRetryBackoff = Duration.ofSeconds(5);
+    private Duration shutdownTimeout = Duration.ofSeconds(5);
+}
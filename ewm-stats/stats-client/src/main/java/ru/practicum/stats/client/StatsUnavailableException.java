@@ -0,0 +1,9 @@
+package ru.practicum.stats.client;
+
+import org.springframework.web.client.RestClientException;
+
+public class StatsUnavailableException extends RestClientException {
+    public StatsUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,128 @@
+package ru.practicum.stats.client;
+
+import ru.practicum.stats.dto.ViewStatsDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+class ViewCache {
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long refreshAfterNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Key, Entry> views;
+
+    ViewCache(int maxEntries, Duration ttl, Duration refreshAfter) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.refreshAfterNanos = refreshAfter.toNanos();
+        this.views = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > ViewCache.this.maxEntries;
+            }
+        };
+    }
+
+    void put(LocalDateTime start, LocalDateTime end, boolean unique, Collection<String> uris,
+             List<ViewStatsDto> stats) {
+        Map<String, List<ViewStatsDto>> byUri = stats.stream()
+                .collect(Collectors.groupingBy(ViewStatsDto::getUri));
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            for (String uri : uris) {
+                views.put(new Key(start, end, unique, uri), new Entry(byUri.getOrDefault(uri, List.of()), now));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Lookup lookup(LocalDateTime start, LocalDateTime end, boolean unique, Collection<String> uris) {
+        Lookup lookup = new Lookup();
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            for (String uri : uris) {
+                Entry entry = views.get(new Key(start, end, unique, uri));
+                long age = entry == null ? Long.MAX_VALUE : now - entry.loadedAt;
+                if (age >= ttlNanos) {
+                    lookup.missing.add(uri);
+                    continue;
+                }
+                lookup.stats.addAll(entry.stats);
+                if (age >= refreshAfterNanos && !entry.refreshing) {
+                    entry.refreshing = true;
+                    lookup.refresh.add(uri);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return lookup;
+    }
+
+    void endRefresh(LocalDateTime start, LocalDateTime end, boolean unique, Collection<String> uris) {
+        lock.lock();
+        try {
+            for (String uri : uris) {
+                Entry entry = views.get(new Key(start, end, unique, uri));
+                if (entry != null) {
+                    entry.refreshing = false;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Optional<List<ViewStatsDto>> getStale(LocalDateTime start, LocalDateTime end, boolean unique,
+                                          Collection<String> uris) {
+        if (uris.isEmpty()) {
+            return Optional.empty();
+        }
+        List<ViewStatsDto> stats = new ArrayList<>();
+        lock.lock();
+        try {
+            for (String uri : uris) {
+                Entry entry = views.get(new Key(start, end, unique, uri));
+                if (entry == null) {
+                    return Optional.empty();
+                }
+                stats.addAll(entry.stats);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return Optional.of(stats);
+    }
+
+    static class Lookup {
+        final List<ViewStatsDto> stats = new ArrayList<>();
+        final List<String> missing = new ArrayList<>();
+        final List<String> refresh = new ArrayList<>();
+    }
+
+    private record Key(LocalDateTime start, LocalDateTime end, boolean unique, String uri) {
+    }
+
+    private static class Entry {
+        private final List<ViewStatsDto> stats;
+        private final long loadedAt;
+        private boolean refreshing;
+
+        private Entry(List<ViewStatsDto> stats, long loadedAt) {
+            this.stats = stats;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
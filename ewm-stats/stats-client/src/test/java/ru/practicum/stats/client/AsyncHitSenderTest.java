@@ -0,0 +1,287 @@
+package ru.practicum.stats.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import ru.practicum.stats.dto.EndpointHitDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AsyncHitSenderTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+    private final List<Long> attempts = Collections.synchronizedList(new ArrayList<>());
+    private AsyncHitSender hitSender;
+
+    @AfterEach
+    void stop() {
+        if (hitSender != null) {
+            hitSender.stop();
+        }
+    }
+
+    @Test
+    void rejectsHitsBeforeStart() {
+        hitSender = new AsyncHitSender(properties(HitOverflowPolicy.DROP_NEWEST), this::record, false, registry);
+
+        assertThat(hitSender.offer(hit("/events/1"))).isFalse();
+    }
+
+    @Test
+    void sendsBufferedHitsInBatches() throws InterruptedException {
+        StatsClientProperties properties = properties(HitOverflowPolicy.DROP_NEWEST);
+        properties.setBatchSize(10);
+        properties.setFlushInterval(Duration.ofMillis(50));
+        hitSender = new AsyncHitSender(properties, this::record, false, registry);
+        hitSender.start();
+
+        for (int i = 0; i < 25; i++) {
+            assertThat(hitSender.offer(hit("/events/" + i))).isTrue();
+        }
+
+        awaitHits("sent", 25);
+        assertThat(sent).hasSize(25);
+        assertThat(registry.get("stats.client.batch.size").summary().max()).isLessThanOrEqualTo(10);
+    }
+
+    @Test
+    void dropsNewestHitWhenBufferIsFull() throws InterruptedException {
+        CountDownLatch release = startBlocked(HitOverflowPolicy.DROP_NEWEST);
+
+        assertThat(hitSender.offer(hit("/events/4"))).isTrue();
+        release.countDown();
+
+        awaitHits("sent", 3);
+        assertThat(sent).containsExactly("/events/1", "/events/2", "/events/3");
+        assertThat(count("dropped")).isEqualTo(1);
+    }
+
+    @Test
+    void dropsOldestHitWhenBufferIsFull() throws InterruptedException {
+        CountDownLatch release = startBlocked(HitOverflowPolicy.DROP_OLDEST);
+
+        assertThat(hitSender.offer(hit("/events/4"))).isTrue();
+        release.countDown();
+
+        awaitHits("sent", 3);
+        assertThat(sent).containsExactly("/events/1", "/events/3", "/events/4");
+        assertThat(count("dropped")).isEqualTo(1);
+    }
+
+    @Test
+    void handsHitBackForSyncSendWhenBufferIsFull() throws InterruptedException {
+        CountDownLatch release = startBlocked(HitOverflowPolicy.SEND_SYNC);
+
+        assertThat(hitSender.offer(hit("/events/4"))).isFalse();
+        release.countDown();
+
+        awaitHits("sent", 3);
+        assertThat(count("sync")).isEqualTo(1);
+    }
+
+    @Test
+    void retriesServerErrorsUntilBatchIsSent() throws InterruptedException {
+        StatsClientProperties properties = properties(HitOverflowPolicy.DROP_NEWEST);
+        hitSender = new AsyncHitSender(properties, failing(2, HttpServerErrorException.create(
+                HttpStatus.SERVICE_UNAVAILABLE, "Service Unavailable", new HttpHeaders(), null, null)), false, registry);
+        hitSender.start();
+
+        hitSender.offer(hit("/events/1"));
+
+        awaitHits("sent", 1);
+        assertThat(attempts).hasSize(3);
+        assertThat(registry.get("stats.client.retries").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() throws InterruptedException {
+        StatsClientProperties properties = properties(HitOverflowPolicy.DROP_NEWEST);
+        properties.setMaxAttempts(3);
+        hitSender = new AsyncHitSender(properties, failing(Integer.MAX_VALUE, new ResourceAccessException("refused")),
+                false, registry);
+        hitSender.start();
+
+        hitSender.offer(hit("/events/1"));
+
+        awaitHits("failed", 1);
+        assertThat(attempts).hasSize(3);
+        assertThat(sent).isEmpty();
+    }
+
+    @Test
+    void doesNotRetryClientErrors() throws InterruptedException {
+        StatsClientProperties properties = properties(HitOverflowPolicy.DROP_NEWEST);
+        hitSender = new AsyncHitSender(properties, failing(Integer.MAX_VALUE, HttpClientErrorException.create(
+                HttpStatus.BAD_REQUEST, "Bad Request", new HttpHeaders(), null, null)), false, registry);
+        hitSender.start();
+
+        hitSender.offer(hit("/events/1"));
+
+        awaitHits("failed", 1);
+        assertThat(attempts).hasSize(1);
+    }
+
+    @Test
+    void keepsSendingAfterUnexpectedError() throws InterruptedException {
+        hitSender = new AsyncHitSender(properties(HitOverflowPolicy.DROP_NEWEST),
+                failing(1, new IllegalStateException("broken converter")), false, registry);
+        hitSender.start();
+
+        hitSender.offer(hit("/events/1"));
+        awaitHits("failed", 1);
+        hitSender.offer(hit("/events/2"));
+
+        awaitHits("sent", 1);
+        assertThat(attempts).hasSize(2);
+        assertThat(sent).containsExactly("/events/2");
+    }
+
+    @Test
+    void waitsForRetryAfterInsteadOfBackoff() throws InterruptedException {
+        StatsClientProperties properties = properties(HitOverflowPolicy.DROP_NEWEST);
+        properties.setRetryBackoff(Duration.ofMillis(1));
+        properties.setMaxRetryBackoff(Duration.ofMillis(300));
+        hitSender = new AsyncHitSender(properties, failing(1, tooManyRequests("1")), false, registry);
+        hitSender.start();
+
+        hitSender.offer(hit("/events/1"));
+
+        awaitHits("sent", 1);
+        assertThat(Duration.ofNanos(attempts.get(1) - attempts.get(0))).isGreaterThanOrEqualTo(Duration.ofMillis(250));
+    }
+
+    @Test
+    void fallsBackToBackoffForUnusableRetryAfter() throws InterruptedException {
+        StatsClientProperties properties = properties(HitOverflowPolicy.DROP_NEWEST);
+        properties.setMaxAttempts(4);
+        hitSender = new AsyncHitSender(properties, failing(3, tooManyRequests("")), false, registry);
+        hitSender.start();
+
+        hitSender.offer(hit("/events/1"));
+        awaitHits("sent", 1);
+        hitSender.offer(hit("/events/2"));
+
+        awaitHits("sent", 2);
+        assertThat(sent).containsExactly("/events/1", "/events/2");
+    }
+
+    @Test
+    void flushesBufferedHitsOnStop() {
+        StatsClientProperties properties = properties(HitOverflowPolicy.DROP_NEWEST);
+        properties.setBatchSize(1000);
+        properties.setFlushInterval(Duration.ofMillis(500));
+        hitSender = new AsyncHitSender(properties, this::record, false, registry);
+        hitSender.start();
+        for (int i = 0; i < 10; i++) {
+            hitSender.offer(hit("/events/" + i));
+        }
+
+        hitSender.stop();
+
+        assertThat(sent).hasSize(10);
+        assertThat(count("dropped")).isZero();
+    }
+
+    @Test
+    void runsOnVirtualThreadWhenRequested() throws InterruptedException {
+        List<Boolean> virtual = Collections.synchronizedList(new ArrayList<>());
+        hitSender = new AsyncHitSender(properties(HitOverflowPolicy.DROP_NEWEST), batch -> {
+            virtual.add(Thread.currentThread().isVirtual());
+            record(batch);
+        }, true, registry);
+        hitSender.start();
+
+        hitSender.offer(hit("/events/1"));
+
+        awaitHits("sent", 1);
+        assertThat(virtual).containsOnly(true);
+    }
+
+    private CountDownLatch startBlocked(HitOverflowPolicy overflow) throws InterruptedException {
+        StatsClientProperties properties = properties(overflow);
+        properties.setBufferCapacity(2);
+        properties.setBatchSize(1);
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        hitSender = new AsyncHitSender(properties, batch -> {
+            sending.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            record(batch);
+        }, false, registry);
+        hitSender.start();
+        hitSender.offer(hit("/events/1"));
+        assertThat(sending.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(hitSender.offer(hit("/events/2"))).isTrue();
+        assertThat(hitSender.offer(hit("/events/3"))).isTrue();
+        return release;
+    }
+
+    private Consumer<List<EndpointHitDto>> failing(int failures, RuntimeException error) {
+        return batch -> {
+            if (attempts.size() < failures) {
+                attempts.add(System.nanoTime());
+                throw error;
+            }
+            attempts.add(System.nanoTime());
+            record(batch);
+        };
+    }
+
+    private void record(List<EndpointHitDto> batch) {
+        batch.forEach(hit -> sent.add(hit.getUri()));
+    }
+
+    private double count(String outcome) {
+        return registry.get("stats.client.hits").tag("outcome", outcome).counter().count();
+    }
+
+    private void awaitHits(String outcome, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (count(outcome) < expected) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static HttpClientErrorException tooManyRequests(String retryAfter) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, retryAfter);
+        return HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", headers, null, null);
+    }
+
+    private static StatsClientProperties properties(HitOverflowPolicy overflow) {
+        StatsClientProperties properties = new StatsClientProperties();
+        properties.setOverflow(overflow);
+        properties.setFlushInterval(Duration.ofMillis(20));
+        properties.setRetryBackoff(Duration.ofMillis(1));
+        properties.setMaxRetryBackoff(Duration.ofMillis(10));
+        return properties;
+    }
+
+    private static EndpointHitDto hit(String uri) {
+        return EndpointHitDto.builder()
+                .app("ewm-main-service")
+                .uri(uri)
+                .ip("192.168.0.1")
+                .timestamp(LocalDateTime.of(2024, 5, 1, 10, 0))
+                .build();
+    }
+}
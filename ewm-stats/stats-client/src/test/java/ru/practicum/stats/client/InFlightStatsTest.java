@@ -0,0 +1,134 @@
+package ru.practicum.stats.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.practicum.stats.dto.ViewStatsDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InFlightStatsTest {
+    private static final LocalDateTime START = LocalDateTime.of(2000, 1, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2100, 1, 1, 0, 0);
+
+    @Test
+    void coalescesConcurrentCallsForSameUri() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        InFlightStats inFlight = new InFlightStats(registry);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        CompletableFuture<List<ViewStatsDto>> first = CompletableFuture.supplyAsync(() ->
+                inFlight.fetch(START, END, true, List.of("/events/1"), uris -> {
+                    loads.incrementAndGet();
+                    loading.countDown();
+                    await(release);
+                    return List.of(views("/events/1", 5));
+                }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<List<ViewStatsDto>> second = CompletableFuture.supplyAsync(() ->
+                inFlight.fetch(START, END, true, List.of("/events/1"), uris -> {
+                    loads.incrementAndGet();
+                    return List.of();
+                }));
+        awaitCoalesced(registry);
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).containsExactly(views("/events/1", 5));
+        assertThat(second.get(5, TimeUnit.SECONDS)).containsExactly(views("/events/1", 5));
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void loadsOnlyUrisNobodyElseIsFetching() throws Exception {
+        InFlightStats inFlight = new InFlightStats(new SimpleMeterRegistry());
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<List<ViewStatsDto>> first = CompletableFuture.supplyAsync(() ->
+                inFlight.fetch(START, END, true, List.of("/events/1"), uris -> {
+                    loading.countDown();
+                    await(release);
+                    return List.of(views("/events/1", 5));
+                }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<List<String>> requested = new CompletableFuture<>();
+        CompletableFuture<List<ViewStatsDto>> second = CompletableFuture.supplyAsync(() ->
+                inFlight.fetch(START, END, true, List.of("/events/1", "/events/2"), uris -> {
+                    requested.complete(uris);
+                    return List.of(views("/events/2", 7));
+                }));
+        assertThat(requested.get(5, TimeUnit.SECONDS)).containsExactly("/events/2");
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).containsExactly(views("/events/1", 5));
+        assertThat(second.get(5, TimeUnit.SECONDS))
+                .containsExactlyInAnyOrder(views("/events/1", 5), views("/events/2", 7));
+    }
+
+    @Test
+    void propagatesLoaderFailureToWaitingCallers() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        InFlightStats inFlight = new InFlightStats(registry);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<List<ViewStatsDto>> first = CompletableFuture.supplyAsync(() ->
+                inFlight.fetch(START, END, true, List.of("/events/1"), uris -> {
+                    loading.countDown();
+                    await(release);
+                    throw new StatsUnavailableException("down");
+                }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<List<ViewStatsDto>> second = CompletableFuture.supplyAsync(() ->
+                inFlight.fetch(START, END, true, List.of("/events/1"), uris -> List.of()));
+        awaitCoalesced(registry);
+        release.countDown();
+
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(StatsUnavailableException.class);
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(StatsUnavailableException.class);
+    }
+
+    @Test
+    void forgetsFinishedRequests() {
+        InFlightStats inFlight = new InFlightStats(new SimpleMeterRegistry());
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            inFlight.fetch(START, END, true, List.of("/events/1"), uris -> {
+                loads.incrementAndGet();
+                return List.of();
+            });
+        }
+
+        assertThat(loads).hasValue(3);
+    }
+
+    private static void awaitCoalesced(SimpleMeterRegistry registry) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.get("stats.client.stats.coalesced.calls").counter().count() < 1) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ViewStatsDto views(String uri, long hits) {
+        return new ViewStatsDto("ewm-main-service", uri, hits);
+    }
+}
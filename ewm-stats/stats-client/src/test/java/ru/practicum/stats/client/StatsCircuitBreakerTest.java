@@ -0,0 +1,85 @@
+package ru.practicum.stats.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatsCircuitBreakerTest {
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        StatsCircuitBreaker breaker = new StatsCircuitBreaker(3, Duration.ofHours(1));
+
+        breaker.onFailure();
+        breaker.onFailure();
+        assertThat(breaker.getState()).isEqualTo(StatsCircuitBreaker.State.CLOSED);
+        assertThat(breaker.tryAcquire()).isTrue();
+
+        breaker.onFailure();
+        assertThat(breaker.getState()).isEqualTo(StatsCircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void successResetsFailureCount() {
+        StatsCircuitBreaker breaker = new StatsCircuitBreaker(3, Duration.ofHours(1));
+
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+
+        assertThat(breaker.getState()).isEqualTo(StatsCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void letsSingleProbeThroughAfterOpenDuration() {
+        StatsCircuitBreaker breaker = new StatsCircuitBreaker(1, Duration.ZERO);
+        breaker.onFailure();
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(StatsCircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void closesWhenProbeSucceeds() {
+        StatsCircuitBreaker breaker = new StatsCircuitBreaker(1, Duration.ZERO);
+        breaker.onFailure();
+        breaker.tryAcquire();
+
+        breaker.onSuccess();
+
+        assertThat(breaker.getState()).isEqualTo(StatsCircuitBreaker.State.CLOSED);
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void reopensWhenProbeFails() {
+        StatsCircuitBreaker breaker = new StatsCircuitBreaker(5, Duration.ZERO);
+        for (int i = 0; i < 5; i++) {
+            breaker.onFailure();
+        }
+        breaker.tryAcquire();
+
+        breaker.onFailure();
+
+        assertThat(breaker.getState()).isEqualTo(StatsCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void staysOpenUntilOpenDurationPasses() throws InterruptedException {
+        StatsCircuitBreaker breaker = new StatsCircuitBreaker(1, Duration.ofMillis(200));
+        breaker.onFailure();
+
+        assertThat(breaker.tryAcquire()).isFalse();
+        Thread.sleep(250);
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(StatsCircuitBreaker.State.HALF_OPEN);
+    }
+}
@@ -0,0 +1,68 @@
+package ru.practicum.stats.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.web.client.MockServerRestTemplateCustomizer;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpServerErrorException;
+import ru.practicum.stats.dto.ViewStatsDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class StatsClientTest {
+    private static final LocalDateTime START = LocalDateTime.of(2000, 1, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2100, 1, 1, 0, 0);
+    private static final List<String> URIS = List.of("/events/1");
+
+    private MockRestServiceServer server;
+    private StatsClient statsClient;
+
+    @BeforeEach
+    void setUp() {
+        StatsClientProperties properties = new StatsClientProperties();
+        properties.setCircuitFailureThreshold(1);
+        properties.setCircuitOpenDuration(Duration.ofMillis(50));
+        MockServerRestTemplateCustomizer customizer = new MockServerRestTemplateCustomizer();
+        statsClient = new StatsClient("http://stats-server:9090", new RestTemplateBuilder(customizer), properties,
+                new StandardEnvironment(), new SimpleMeterRegistry());
+        server = customizer.getServer();
+    }
+
+    @Test
+    void reopensCircuitWhenProbeFailsWithUnexpectedError() throws InterruptedException {
+        server.expect(requestTo(startsWith("http://stats-server:9090/stats"))).andRespond(withServerError());
+        server.expect(requestTo(startsWith("http://stats-server:9090/stats"))).andRespond(request -> {
+            throw new IllegalStateException("broken converter");
+        });
+        server.expect(requestTo(startsWith("http://stats-server:9090/stats")))
+                .andRespond(withSuccess("[{\"app\":\"ewm-main-service\",\"uri\":\"/events/1\",\"hits\":3}]",
+                        MediaType.APPLICATION_JSON));
+
+        assertThatThrownBy(() -> statsClient.getStats(START, END, URIS, true))
+                .isInstanceOf(HttpServerErrorException.class);
+        assertThatThrownBy(() -> statsClient.getStats(START, END, URIS, true))
+                .isInstanceOf(StatsUnavailableException.class);
+        Thread.sleep(60);
+        assertThatThrownBy(() -> statsClient.getStats(START, END, URIS, true))
+                .isInstanceOf(IllegalStateException.class);
+        Thread.sleep(60);
+
+        List<ViewStatsDto> stats = statsClient.getStats(START, END, URIS, true).getBody();
+
+        assertThat(stats).extracting(ViewStatsDto::getHits).containsExactly(3L);
+        server.verify();
+    }
+}
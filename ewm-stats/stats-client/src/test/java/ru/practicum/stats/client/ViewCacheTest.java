@@ -0,0 +1,87 @@
+package ru.practicum.stats.client;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.stats.dto.ViewStatsDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ViewCacheTest {
+    private static final LocalDateTime START = LocalDateTime.of(2000, 1, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2100, 1, 1, 0, 0);
+
+    @Test
+    void servesCachedUrisAndReportsMissingOnes() {
+        ViewCache cache = new ViewCache(100, Duration.ofHours(1), Duration.ofHours(1));
+        cache.put(START, END, true, List.of("/events/1", "/events/2"), List.of(views("/events/1", 5)));
+
+        ViewCache.Lookup lookup = cache.lookup(START, END, true, List.of("/events/1", "/events/2", "/events/3"));
+
+        assertThat(lookup.stats).containsExactly(views("/events/1", 5));
+        assertThat(lookup.missing).containsExactly("/events/3");
+        assertThat(lookup.refresh).isEmpty();
+    }
+
+    @Test
+    void keysEntriesByWindowAndUniqueness() {
+        ViewCache cache = new ViewCache(100, Duration.ofHours(1), Duration.ofHours(1));
+        cache.put(START, END, true, List.of("/events/1"), List.of(views("/events/1", 5)));
+
+        assertThat(cache.lookup(START, END, false, List.of("/events/1")).missing).containsExactly("/events/1");
+        assertThat(cache.lookup(START, END.minusDays(1), true, List.of("/events/1")).missing)
+                .containsExactly("/events/1");
+    }
+
+    @Test
+    void expiresEntriesAfterTtl() {
+        ViewCache cache = new ViewCache(100, Duration.ZERO, Duration.ZERO);
+        cache.put(START, END, true, List.of("/events/1"), List.of(views("/events/1", 5)));
+
+        ViewCache.Lookup lookup = cache.lookup(START, END, true, List.of("/events/1"));
+
+        assertThat(lookup.stats).isEmpty();
+        assertThat(lookup.missing).containsExactly("/events/1");
+    }
+
+    @Test
+    void schedulesOneRefreshUntilItEnds() {
+        ViewCache cache = new ViewCache(100, Duration.ofHours(1), Duration.ZERO);
+        cache.put(START, END, true, List.of("/events/1"), List.of(views("/events/1", 5)));
+
+        assertThat(cache.lookup(START, END, true, List.of("/events/1")).refresh).containsExactly("/events/1");
+        assertThat(cache.lookup(START, END, true, List.of("/events/1")).refresh).isEmpty();
+
+        cache.endRefresh(START, END, true, List.of("/events/1"));
+
+        assertThat(cache.lookup(START, END, true, List.of("/events/1")).refresh).containsExactly("/events/1");
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntries() {
+        ViewCache cache = new ViewCache(2, Duration.ofHours(1), Duration.ofHours(1));
+        cache.put(START, END, true, List.of("/events/1", "/events/2"), List.of());
+        cache.lookup(START, END, true, List.of("/events/1"));
+        cache.put(START, END, true, List.of("/events/3"), List.of());
+
+        assertThat(cache.lookup(START, END, true, List.of("/events/1", "/events/2", "/events/3")).missing)
+                .containsExactly("/events/2");
+    }
+
+    @Test
+    void returnsStaleViewsOnlyWhenEveryUriIsKnown() {
+        ViewCache cache = new ViewCache(100, Duration.ZERO, Duration.ZERO);
+        cache.put(START, END, true, List.of("/events/1", "/events/2"), List.of(views("/events/1", 5)));
+
+        assertThat(cache.getStale(START, END, true, List.of("/events/1", "/events/2")))
+                .hasValueSatisfying(stats -> assertThat(stats).containsExactly(views("/events/1", 5)));
+        assertThat(cache.getStale(START, END, true, List.of("/events/1", "/events/3"))).isEmpty();
+        assertThat(cache.getStale(START, END, true, List.of())).isEmpty();
+    }
+
+    private static ViewStatsDto views(String uri, long hits) {
+        return new ViewStatsDto("ewm-main-service", uri, hits);
+    }
+}
@@ -1,6 +1,9 @@
 package ru.practicum.stats.dto;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -14,9 +17,15 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 public class EndpointHitDto {
     private Long id;
+    @NotBlank
+    @Size(max = 255)
     private String app;
+    @NotBlank
+    @Size(max = 255)
     private String uri;
+    @NotBlank
     private String ip;
+    @NotNull
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime timestamp;
 }
@@ -0,0 +1,14 @@
+package ru.practicum.stats.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class HitImportResultDto {
+    private Long rows;
+    private Long durationMillis;
+    private Long rowsPerSecond;
+}
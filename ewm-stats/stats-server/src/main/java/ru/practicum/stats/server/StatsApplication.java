@@ -2,8 +2,12 @@ package ru.practicum.stats.server;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
+@EnableScheduling
 public class StatsApplication {
     public static void main(String[] args) {
         SpringApplication.run(StatsApplication.class, args);
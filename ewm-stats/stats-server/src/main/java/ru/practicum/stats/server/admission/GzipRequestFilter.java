@@ -0,0 +1,152 @@
+package ru.practicum.stats.server.admission;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.practicum.stats.server.exception.InvalidGzipException;
+import ru.practicum.stats.server.exception.PayloadTooLargeException;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Распаковывает тела запросов с Content-Encoding: gzip. Объем распакованных данных ограничен, при его
+ * превышении запрос завершается ответом 413, поврежденные данные дают ответ 400.
+ */
+@Component
+@Order(HitAdmissionFilter.ORDER + 10)
+public class GzipRequestFilter extends OncePerRequestFilter {
+    private static final String GZIP = "gzip";
+
+    private final GzipRequestProperties properties;
+
+    public GzipRequestFilter(GzipRequestProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !GZIP.equalsIgnoreCase(request.getHeader(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        chain.doFilter(new GzipRequest(request, properties.getMaxDecompressedSize().toBytes()), response);
+    }
+
+    private static class GzipRequest extends HttpServletRequestWrapper {
+        private final long maxSize;
+        private ServletInputStream inputStream;
+
+        private GzipRequest(HttpServletRequest request, long maxSize) {
+            super(request);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (inputStream == null) {
+                ServletInputStream source = super.getInputStream();
+                try {
+                    inputStream = new GzipInputStream(source, new GZIPInputStream(source, 8192), maxSize);
+                } catch (ZipException | EOFException e) {
+                    throw new InvalidGzipException("Некорректный заголовок gzip: " + e.getMessage(), e);
+                }
+            }
+            return inputStream;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            Charset charset = getCharacterEncoding() == null ? StandardCharsets.UTF_8
+                    : Charset.forName(getCharacterEncoding());
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+    }
+
+    private static class GzipInputStream extends ServletInputStream {
+        private final ServletInputStream source;
+        private final InputStream in;
+        private final long maxSize;
+        private long size;
+        private boolean finished;
+
+        private GzipInputStream(ServletInputStream source, InputStream in, long maxSize) {
+            this.source = source;
+            this.in = in;
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int read = read(b, 0, 1);
+            return read < 0 ? read : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read;
+            try {
+                read = in.read(b, off, len);
+            } catch (ZipException | EOFException e) {
+                throw new InvalidGzipException("Некорректные данные gzip: " + e.getMessage(), e);
+            }
+            if (read < 0) {
+                finished = true;
+                return read;
+            }
+            size += read;
+            if (size > maxSize) {
+                throw new PayloadTooLargeException("Распакованное тело запроса больше " + maxSize + " байт");
+            }
+            return read;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return finished || source.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            source.setReadListener(readListener);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package ru.practicum.stats.server.admission;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.gzip")
+public class GzipRequestProperties {
+    private DataSize maxDecompressedSize = DataSize.ofMegabytes(256);
+}
@@ -0,0 +1,219 @@
+package ru.practicum.stats.server.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.practicum.stats.server.ingest.HitIngestProperties;
+import ru.practicum.stats.server.ingest.HitIngestionQueue;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ограничивает число одновременных запросов на запись вызовов. Пока выполняются запросы на чтение
+ * статистики, запись ограничивается сильнее, чтобы чтению оставались соединения с базой.
+ * Импорт и экспорт вызовов фильтр не ограничивает. Фильтр стоит перед {@link GzipRequestFilter}, чтобы
+ * отклоненные запросы не распаковывались.
+ */
+@Slf4j
+@Component
+@Order(HitAdmissionFilter.ORDER)
+public class HitAdmissionFilter extends OncePerRequestFilter {
+    public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 10;
+    private static final Set<String> INGEST_PATHS = Set.of("/hit", "/hits");
+    private static final String READ_PATH = "/stats";
+
+    private final HitAdmissionProperties properties;
+    private final HitIngestProperties ingestProperties;
+    private final HitIngestionQueue ingestionQueue;
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition released = lock.newCondition();
+    private final AtomicInteger queued = new AtomicInteger();
+    private volatile int inFlight;
+    private volatile int readsInFlight;
+    private final Counter concurrencyRejections;
+    private final Counter backlogRejections;
+
+    public HitAdmissionFilter(HitAdmissionProperties properties, HitIngestProperties ingestProperties,
+                              HitIngestionQueue ingestionQueue, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.ingestProperties = ingestProperties;
+        this.ingestionQueue = ingestionQueue;
+        this.concurrencyRejections = rejections(meterRegistry, "concurrency");
+        this.backlogRejections = rejections(meterRegistry, "backlog");
+        Gauge.builder("stats.admission.in-flight", this, filter -> filter.inFlight)
+                .description("Количество запросов на запись вызовов, обрабатываемых сейчас")
+                .register(meterRegistry);
+        Gauge.builder("stats.admission.reads-in-flight", this, filter -> filter.readsInFlight)
+                .description("Количество запросов на чтение статистики, обрабатываемых сейчас")
+                .register(meterRegistry);
+        Gauge.builder("stats.admission.queued", queued, AtomicInteger::get)
+                .description("Количество запросов на запись вызовов, ожидающих обработки")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled() || !isIngest(request) && !isRead(request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (isRead(request)) {
+            read(request, response, chain);
+            return;
+        }
+        if (isBacklogged()) {
+            backlogRejections.increment();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, "Очередь записи вызовов переполнена");
+            return;
+        }
+        if (!acquire()) {
+            concurrencyRejections.increment();
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, "Превышено число одновременных запросов на запись вызовов");
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            release(() -> inFlight--);
+        }
+    }
+
+    private void read(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        lock.lock();
+        try {
+            readsInFlight++;
+        } finally {
+            lock.unlock();
+        }
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReadCompletionListener());
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                release(() -> readsInFlight--);
+            }
+        }
+    }
+
+    private static boolean isIngest(HttpServletRequest request) {
+        return HttpMethod.POST.matches(request.getMethod()) && INGEST_PATHS.contains(request.getServletPath());
+    }
+
+    private static boolean isRead(HttpServletRequest request) {
+        String path = request.getServletPath();
+        return HttpMethod.GET.matches(request.getMethod())
+                && (path.equals(READ_PATH) || path.startsWith(READ_PATH + "/"));
+    }
+
+    private boolean isBacklogged() {
+        return ingestionQueue.isEnabled()
+                && ingestionQueue.size() >= ingestProperties.getQueueCapacity() * properties.getQueueHighWatermark();
+    }
+
+    private boolean acquire() {
+        lock.lock();
+        try {
+            if (inFlight < limit()) {
+                inFlight++;
+                return true;
+            }
+            if (queued.incrementAndGet() > properties.getMaxQueued()) {
+                queued.decrementAndGet();
+                return false;
+            }
+            try {
+                long remaining = properties.getQueueTimeout().toNanos();
+                while (inFlight >= limit()) {
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    remaining = released.awaitNanos(remaining);
+                }
+                inFlight++;
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                queued.decrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int limit() {
+        return readsInFlight > 0
+                ? Math.min(properties.getMaxInFlight(), properties.getMaxInFlightDuringReads())
+                : properties.getMaxInFlight();
+    }
+
+    private void release(Runnable update) {
+        lock.lock();
+        try {
+            update.run();
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, String reason) throws IOException {
+        log.debug("Запрос на запись вызовов отклонен: {}", reason);
+        long retryAfter = Math.max(1, (properties.getRetryAfter().toMillis() + 999) / 1000);
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfter));
+        response.sendError(status.value(), reason);
+    }
+
+    private class ReadCompletionListener implements AsyncListener {
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release(() -> readsInFlight--);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("stats.admission.rejected")
+                .description("Количество отклоненных запросов на запись вызовов")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
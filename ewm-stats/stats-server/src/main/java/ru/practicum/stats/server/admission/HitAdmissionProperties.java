@@ -0,0 +1,20 @@
+package ru.practicum.stats.server.admission;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.admission")
+public class HitAdmissionProperties {
+    private boolean enabled = false;
+    private int maxInFlight = 32;
+    private int maxInFlightDuringReads = 4;
+    private int maxQueued = 64;
+    private Duration queueTimeout = Duration.ofMillis(100);
+    private double queueHighWatermark = 0.9;
+    private Duration retryAfter = Duration.ofSeconds(1);
+}
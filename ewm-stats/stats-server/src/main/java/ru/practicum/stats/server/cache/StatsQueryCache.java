@@ -0,0 +1,142 @@
+package ru.practicum.stats.server.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.model.EndpointHit;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+@Component
+public class StatsQueryCache {
+    private final StatsQueryCacheProperties properties;
+    private final Map<QueryKey, Entry> entries;
+    private final Map<String, LongAdder> uriVersions = new ConcurrentHashMap<>();
+    private final LongAdder globalVersion = new LongAdder();
+    private final Counter hits;
+    private final Counter misses;
+
+    public StatsQueryCache(StatsQueryCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<QueryKey, Entry> eldest) {
+                return size() > properties.getMaxEntries();
+            }
+        };
+        this.hits = Counter.builder("stats.query-cache.gets")
+                .tag("result", "hit")
+                .description("Количество запросов статистики, обслуженных из кэша")
+                .register(meterRegistry);
+        this.misses = Counter.builder("stats.query-cache.gets")
+                .tag("result", "miss")
+                .description("Количество запросов статистики, выполненных мимо кэша")
+                .register(meterRegistry);
+        Gauge.builder("stats.query-cache.size", this, StatsQueryCache::size)
+                .description("Количество закэшированных ответов статистики")
+                .register(meterRegistry);
+    }
+
+    public Collection<ViewStatsDto> get(LocalDateTime start, LocalDateTime end, Collection<String> uris,
+                                        Boolean unique, Boolean approx, Supplier<Collection<ViewStatsDto>> loader) {
+        if (!properties.isEnabled()) {
+            return loader.get();
+        }
+        QueryKey key = new QueryKey(start, end, normalize(uris), Boolean.TRUE.equals(unique),
+                Boolean.TRUE.equals(approx));
+        long version = version(key.uris());
+        long now = System.nanoTime();
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry != null && isFresh(entry, version, now)) {
+            hits.increment();
+            return entry.value();
+        }
+        misses.increment();
+        Collection<ViewStatsDto> value = List.copyOf(loader.get());
+        synchronized (entries) {
+            entries.put(key, new Entry(value, version, now));
+        }
+        return value;
+    }
+
+    public void onIngested(Collection<EndpointHit> ingested) {
+        onIngestedUris(ingested.stream().map(EndpointHit::getUri).distinct().toList());
+    }
+
+    public void onIngestedUris(List<String> uris) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    advance(uris);
+                }
+            });
+        } else {
+            advance(uris);
+        }
+    }
+
+    private boolean isFresh(Entry entry, long version, long now) {
+        long age = now - entry.createdAt();
+        if (age > properties.getTtl().toNanos()) {
+            return false;
+        }
+        return entry.version() == version || age <= properties.getMaxStaleness().toNanos();
+    }
+
+    private void advance(List<String> uris) {
+        uris.forEach(uri -> uriVersions.computeIfAbsent(uri, k -> new LongAdder()).increment());
+        globalVersion.increment();
+    }
+
+    private long version(List<String> uris) {
+        if (uris.isEmpty()) {
+            return globalVersion.sum();
+        }
+        long version = 0;
+        for (String uri : uris) {
+            LongAdder uriVersion = uriVersions.get(uri);
+            if (uriVersion != null) {
+                version += uriVersion.sum();
+            }
+        }
+        return version;
+    }
+
+    private int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private List<String> normalize(Collection<String> uris) {
+        if (uris == null || uris.isEmpty()) {
+            return List.of();
+        }
+        return uris.stream().distinct().sorted().toList();
+    }
+
+    private record QueryKey(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                            boolean approx) {
+    }
+
+    private record Entry(Collection<ViewStatsDto> value, long version, long createdAt) {
+    }
+}
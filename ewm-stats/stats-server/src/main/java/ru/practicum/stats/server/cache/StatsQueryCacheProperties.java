@@ -0,0 +1,17 @@
+package ru.practicum.stats.server.cache;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.query-cache")
+public class StatsQueryCacheProperties {
+    private boolean enabled = false;
+    private int maxEntries = 10_000;
+    private Duration ttl = Duration.ofMinutes(1);
+    private Duration maxStaleness = Duration.ofSeconds(1);
+}
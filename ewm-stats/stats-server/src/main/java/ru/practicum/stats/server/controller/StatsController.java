@@ -1,44 +1,192 @@
 package ru.practicum.stats.server.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.HitImportResultDto;
+import ru.practicum.stats.dto.TimeSeriesPointDto;
 import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.exception.BadRequestException;
+import ru.practicum.stats.server.model.HitFileFormat;
 import ru.practicum.stats.server.service.StatsService;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Slf4j
 @RestController
 @RequiredArgsConstructor
 public class StatsController {
     private final StatsService statsService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
     private final DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     @ResponseStatus(HttpStatus.CREATED)
     @PostMapping("/hit")
-    public void saveHit(@RequestBody EndpointHitDto hit) {
-        log.info("Сохранение события вызова сервиса {}", hit);
+    public void saveHit(@Valid @RequestBody EndpointHitDto hit) {
+        log.debug("Сохранение события вызова сервиса {}", hit);
         statsService.saveHit(hit);
     }
 
+    @ResponseStatus(HttpStatus.CREATED)
+    @PostMapping(value = "/hits", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public void saveHits(@RequestBody List<@Valid EndpointHitDto> hits) {
+        log.info("Сохранение {} событий вызова сервиса", hits.size());
+        statsService.saveHits(hits.iterator());
+    }
+
+    @ResponseStatus(HttpStatus.CREATED)
+    @PostMapping(value = "/hits", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public void saveHitsStream(HttpServletRequest request) throws IOException {
+        log.info("Сохранение потока событий вызова сервиса");
+        try (MappingIterator<EndpointHitDto> hits = objectMapper.readerFor(EndpointHitDto.class)
+                .readValues(request.getInputStream())) {
+            statsService.saveHits(validating(hits));
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException("Некорректные входные данные: " + e.getOriginalMessage());
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof JsonProcessingException cause) {
+                throw new BadRequestException("Некорректные входные данные: " + cause.getOriginalMessage());
+            }
+            throw e;
+        }
+    }
+
+    @ResponseStatus(HttpStatus.CREATED)
+    @PostMapping("/hits/import")
+    public HitImportResultDto importHits(@RequestParam(defaultValue = "csv") String format,
+                                         HttpServletRequest request) throws IOException {
+        log.info("Импорт вызовов: format={}", format);
+        HitFileFormat importFormat = HitFileFormat.from(format)
+                .orElseThrow(() -> new BadRequestException("Неподдерживаемый формат импорта: " + format));
+        return statsService.importHits(importFormat, request.getInputStream());
+    }
+
+    @GetMapping("/hits/export")
+    public ResponseEntity<StreamingResponseBody> exportHits(@RequestParam String start,
+                                                            @RequestParam String end,
+                                                            @RequestParam(defaultValue = "csv") String format) {
+        log.info("Выгрузка вызовов: start={}, end={}, format={}", start, end, format);
+        LocalDateTime rangeStart = LocalDateTime.parse(start, dateTimeFormatter);
+        LocalDateTime rangeEnd = LocalDateTime.parse(end, dateTimeFormatter);
+        HitFileFormat exportFormat = HitFileFormat.from(format)
+                .orElseThrow(() -> new BadRequestException("Неподдерживаемый формат выгрузки: " + format));
+        StreamingResponseBody body = out -> statsService.exportHits(rangeStart, rangeEnd, exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(exportFormat == HitFileFormat.CSV ? new MediaType("text", "csv") : MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     @GetMapping("/stats")
     public Collection<ViewStatsDto> getStatistics(@RequestParam String start,
                                                   @RequestParam String end,
                                                   @RequestParam(required = false) Collection<String> uris,
-                                                  @RequestParam(defaultValue = "false") Boolean unique) {
-        log.info("Запрос статистики: start={}, end={}, uris={}, unique={}", start, end, uris, unique);
+                                                  @RequestParam(defaultValue = "false") Boolean unique,
+                                                  @RequestParam(defaultValue = "false") Boolean approx) {
+        log.info("Запрос статистики: start={}, end={}, uris={}, unique={}, approx={}", start, end, uris, unique, approx);
         return statsService.getStatistics(
-                LocalDateTime.parse(start, dateTimeFormatter), LocalDateTime.parse(end, dateTimeFormatter), uris, unique
+                LocalDateTime.parse(start, dateTimeFormatter), LocalDateTime.parse(end, dateTimeFormatter), uris, unique,
+                approx
         );
     }
+
+    @GetMapping("/stats/timeseries")
+    public Collection<TimeSeriesPointDto> getTimeSeries(@RequestParam String start,
+                                                        @RequestParam String end,
+                                                        @RequestParam(required = false) Collection<String> uris,
+                                                        @RequestParam(defaultValue = "hour") String bucket) {
+        log.info("Запрос временного ряда: start={}, end={}, uris={}, bucket={}", start, end, uris, bucket);
+        return statsService.getTimeSeries(LocalDateTime.parse(start, dateTimeFormatter),
+                LocalDateTime.parse(end, dateTimeFormatter), uris, bucket);
+    }
+
+    @GetMapping("/stats/top")
+    public Collection<ViewStatsDto> getTop(@RequestParam String start,
+                                           @RequestParam String end,
+                                           @RequestParam(defaultValue = "10") Integer limit,
+                                           @RequestParam(defaultValue = "false") Boolean exact) {
+        log.info("Запрос популярных uri: start={}, end={}, limit={}, exact={}", start, end, limit, exact);
+        return statsService.getTop(LocalDateTime.parse(start, dateTimeFormatter),
+                LocalDateTime.parse(end, dateTimeFormatter), limit, exact);
+    }
+
+    @GetMapping(value = "/stats", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamStatistics(@RequestParam String start,
+                                                                  @RequestParam String end,
+                                                                  @RequestParam(required = false) Collection<String> uris,
+                                                                  @RequestParam(defaultValue = "false") Boolean unique,
+                                                                  @RequestParam(defaultValue = "false") Boolean approx) {
+        log.info("Потоковый запрос статистики: start={}, end={}, uris={}, unique={}, approx={}",
+                start, end, uris, unique, approx);
+        LocalDateTime rangeStart = LocalDateTime.parse(start, dateTimeFormatter);
+        LocalDateTime rangeEnd = LocalDateTime.parse(end, dateTimeFormatter);
+        ObjectWriter writer = objectMapper.writerFor(ViewStatsDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = out -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+            generator.setRootValueSeparator(null);
+            statsService.streamStatistics(rangeStart, rangeEnd, uris, unique, approx, stats -> {
+                try {
+                    writer.writeValue(generator, stats);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.close();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private Iterator<EndpointHitDto> validating(Iterator<EndpointHitDto> hits) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return hits.hasNext();
+            }
+
+            @Override
+            public EndpointHitDto next() {
+                EndpointHitDto hit = hits.next();
+                Set<ConstraintViolation<EndpointHitDto>> violations = validator.validate(hit);
+                if (!violations.isEmpty()) {
+                    throw new BadRequestException("Некорректные входные данные: " + violations.stream()
+                            .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                            .sorted()
+                            .collect(Collectors.joining(", ")));
+                }
+                return hit;
+            }
+        };
+    }
 }
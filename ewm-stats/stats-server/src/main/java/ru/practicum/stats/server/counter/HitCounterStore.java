@@ -0,0 +1,401 @@
+package ru.practicum.stats.server.counter;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.server.dictionary.StatsDictionary;
+import ru.practicum.stats.server.mapper.IpAddressMapper;
+import ru.practicum.stats.server.mapper.Ipv6Address;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.model.ViewStats;
+import ru.practicum.stats.server.partition.ExpiredPartitionsDroppedEvent;
+import ru.practicum.stats.server.thread.BackgroundThreads;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Счетчики посещений в памяти. Строятся в фоне: число вызовов берется из суточных сводок, уникальные
+ * посетители из самих вызовов, поэтому ответы совпадают с ответами из базы; пока счетчики не готовы,
+ * запросы обслуживает база. Уникальных посетителей счетчик знает точно, пока их не больше
+ * stats.hot-counters.max-exact-visitors; запросы уникальных по uri сверх этого порога обслуживает база.
+ * Удаление устаревших секций перестраивает счетчики.
+ * Вызовы учитываются после фиксации транзакции, в которой они записаны. Снимок базы для загрузки берется
+ * под блокировкой, которую фиксирующие транзакции держат на чтение, поэтому каждый вызов попадает либо
+ * в снимок, либо в новые счетчики, но не в оба сразу.
+ */
+@Slf4j
+@Component
+public class HitCounterStore implements SmartLifecycle {
+    private static final int REBUILD_FETCH_SIZE = 10_000;
+
+    private final HotCounterProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate snapshotTemplate;
+    private final StatsDictionary dictionary;
+    private final BackgroundThreads threads;
+    private final ReentrantReadWriteLock commitLock = new ReentrantReadWriteLock();
+    private final Semaphore rebuildRequests = new Semaphore(0);
+    private final AtomicLong invalidations = new AtomicLong();
+    private volatile Generation generation = new Generation();
+    private volatile boolean running;
+    private Thread loaderThread;
+
+    public HitCounterStore(HotCounterProperties properties, JdbcTemplate jdbcTemplate,
+                           TransactionTemplate transactionTemplate, StatsDictionary dictionary,
+                           BackgroundThreads threads, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.snapshotTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.dictionary = dictionary;
+        this.threads = threads;
+        Gauge.builder("stats.hot-counters.uris", this, store -> store.generation.trackedUris.sum())
+                .description("Количество uri, счетчики которых хранятся в памяти")
+                .register(meterRegistry);
+        Gauge.builder("stats.hot-counters.ready", this, store -> store.generation.ready ? 1 : 0)
+                .description("Готовность счетчиков посещений в памяти")
+                .register(meterRegistry);
+    }
+
+    public void recordOnCommit(List<EndpointHit> hits) {
+        if (!properties.isEnabled() || hits.isEmpty()) {
+            return;
+        }
+        List<EndpointHit> committed = List.copyOf(hits);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            commitLock.readLock().lock();
+            try {
+                record(committed);
+            } finally {
+                commitLock.readLock().unlock();
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean locked;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                commitLock.readLock().lock();
+                locked = true;
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    if (status == STATUS_COMMITTED) {
+                        record(committed);
+                    } else if (status == STATUS_UNKNOWN) {
+                        invalidate();
+                    }
+                } finally {
+                    if (locked) {
+                        commitLock.readLock().unlock();
+                    }
+                }
+            }
+        });
+    }
+
+    public void invalidate() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        invalidations.incrementAndGet();
+        if (generation.ready) {
+            generation.ready = false;
+            log.warn("Счетчики посещений в памяти отключены до перестроения");
+        }
+        rebuildRequests.release();
+    }
+
+    @EventListener
+    public void onPartitionsDropped(ExpiredPartitionsDroppedEvent event) {
+        invalidate();
+    }
+
+    public Optional<Collection<ViewStats>> find(LocalDateTime start, LocalDateTime end, Collection<String> uris,
+                                                Boolean unique) {
+        Generation current = generation;
+        if (!current.ready || !current.coversAllHits(start, end)) {
+            return Optional.empty();
+        }
+        boolean distinct = Boolean.TRUE.equals(unique);
+        List<ViewStats> result = new ArrayList<>();
+        if (uris == null || uris.isEmpty()) {
+            if (current.overflow) {
+                return Optional.empty();
+            }
+            for (Map.Entry<String, Map<String, UriCounter>> entry : current.counters.entrySet()) {
+                if (!collect(entry.getKey(), entry.getValue(), distinct, result)) {
+                    return Optional.empty();
+                }
+            }
+        } else {
+            for (String uri : uris.stream().distinct().toList()) {
+                Map<String, UriCounter> apps = current.counters.get(uri);
+                if (apps == null && current.overflow) {
+                    return Optional.empty();
+                }
+                if (apps != null && !collect(uri, apps, distinct, result)) {
+                    return Optional.empty();
+                }
+            }
+        }
+        result.sort(Comparator.comparing(ViewStats::getHits).reversed());
+        return Optional.of(result);
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        running = true;
+        rebuildRequests.release();
+        loaderThread = threads.start("stats-hot-counters-loader", this::loadLoop);
+    }
+
+    @Override
+    public void stop() {
+        if (loaderThread == null) {
+            return;
+        }
+        running = false;
+        loaderThread.interrupt();
+        try {
+            loaderThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        loaderThread = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE - 4096;
+    }
+
+    private void loadLoop() {
+        while (running) {
+            try {
+                rebuildRequests.acquire();
+                rebuildRequests.drainPermits();
+                rebuild();
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.error("Не удалось построить счетчики посещений, повтор через {}",
+                        properties.getRebuildRetryInterval(), e);
+                rebuildRequests.release();
+                try {
+                    TimeUnit.MILLISECONDS.sleep(properties.getRebuildRetryInterval().toMillis());
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void rebuild() {
+        long started = System.currentTimeMillis();
+        long invalidation = invalidations.get();
+        Generation next = snapshotTemplate.execute(status -> {
+            // SHOW не фиксирует снимок транзакции, но занимает соединение до взятия блокировки
+            jdbcTemplate.queryForObject("SHOW transaction_isolation", String.class);
+            Generation loading = new Generation();
+            commitLock.writeLock().lock();
+            try {
+                jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+                generation = loading;
+            } finally {
+                commitLock.writeLock().unlock();
+            }
+            load(loading);
+            return loading;
+        });
+        if (next != null && invalidations.get() == invalidation) {
+            next.ready = true;
+            log.info("Счетчики посещений построены за {} мс: {} uri", System.currentTimeMillis() - started,
+                    next.trackedUris.sum());
+        }
+    }
+
+    private void load(Generation target) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT app_id, uri_id, SUM(hits) AS hits, " +
+                    "MIN(bucket) AS first_bucket, MAX(bucket) AS last_bucket FROM public.stats_rollup_daily " +
+                    "GROUP BY app_id, uri_id");
+            ps.setFetchSize(REBUILD_FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            UriCounter counter = target.counter(dictionary.app(rs.getInt("app_id")),
+                    dictionary.uri(rs.getInt("uri_id")), properties.getMaxUris());
+            if (counter != null) {
+                counter.addHits(rs.getLong("hits"));
+            }
+            target.updateBounds(rs.getTimestamp("first_bucket").toLocalDateTime());
+            target.updateBounds(rs.getTimestamp("last_bucket").toLocalDateTime().plusDays(1));
+        });
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT DISTINCT app_id, uri_id, host(user_ip) AS ip " +
+                    "FROM public.stats");
+            ps.setFetchSize(REBUILD_FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            UriCounter counter = target.counter(dictionary.app(rs.getInt("app_id")),
+                    dictionary.uri(rs.getInt("uri_id")), properties.getMaxUris());
+            if (counter != null) {
+                counter.addVisitor(rs.getString("ip"), properties.getMaxExactVisitors());
+            }
+        });
+        Timestamp latest = jdbcTemplate.queryForObject("SELECT MAX(created) FROM public.stats", Timestamp.class);
+        if (latest != null) {
+            target.latest.set(latest.toLocalDateTime());
+        }
+    }
+
+    private void record(List<EndpointHit> hits) {
+        Generation current = generation;
+        for (EndpointHit hit : hits) {
+            UriCounter counter = current.counter(hit.getApp(), hit.getUri(), properties.getMaxUris());
+            if (counter != null) {
+                counter.addHits(1);
+                counter.addVisitor(hit.getIp(), properties.getMaxExactVisitors());
+            }
+            current.updateBounds(hit.getCreated());
+        }
+    }
+
+    private boolean collect(String uri, Map<String, UriCounter> apps, boolean distinct, List<ViewStats> result) {
+        for (Map.Entry<String, UriCounter> entry : apps.entrySet()) {
+            if (!distinct) {
+                result.add(new ViewStats(entry.getKey(), uri, entry.getValue().total()));
+                continue;
+            }
+            long visitors = entry.getValue().unique();
+            if (visitors < 0) {
+                return false;
+            }
+            // вызовы из удаленных секций остаются в сводках, но база не видит их посетителей
+            if (visitors > 0) {
+                result.add(new ViewStats(entry.getKey(), uri, visitors));
+            }
+        }
+        return true;
+    }
+
+    private static class Generation {
+        private final Map<String, Map<String, UriCounter>> counters = new ConcurrentHashMap<>();
+        private final LongAdder trackedUris = new LongAdder();
+        private final AtomicReference<LocalDateTime> earliest = new AtomicReference<>();
+        private final AtomicReference<LocalDateTime> latest = new AtomicReference<>();
+        private volatile boolean ready;
+        private volatile boolean overflow;
+
+        UriCounter counter(String app, String uri, int maxUris) {
+            Map<String, UriCounter> apps = counters.get(uri);
+            if (apps == null) {
+                if (trackedUris.sum() >= maxUris) {
+                    overflow = true;
+                    return null;
+                }
+                apps = counters.computeIfAbsent(uri, k -> {
+                    trackedUris.increment();
+                    return new ConcurrentHashMap<>();
+                });
+            }
+            return apps.computeIfAbsent(app, k -> new UriCounter());
+        }
+
+        void updateBounds(LocalDateTime created) {
+            earliest.accumulateAndGet(created, (current, value) -> current == null || value.isBefore(current) ? value : current);
+            latest.accumulateAndGet(created, (current, value) -> current == null || value.isAfter(current) ? value : current);
+        }
+
+        boolean coversAllHits(LocalDateTime start, LocalDateTime end) {
+            LocalDateTime first = earliest.get();
+            LocalDateTime last = latest.get();
+            return first == null || (!start.isAfter(first) && !end.isBefore(last));
+        }
+    }
+
+    /**
+     * Уникальные посетители считаются точно, пока их не больше заданного порога. Затем множества
+     * посетителей освобождаются, и запросы уникальных по этому uri уходят в базу. Адреса IPv6 хранятся
+     * целиком: как и в базе, IPv4-mapped адрес считается отдельным от того же адреса IPv4.
+     */
+    private static class UriCounter {
+        private final LongAdder total = new LongAdder();
+        private final ReentrantLock lock = new ReentrantLock();
+        private LongHashSet visitors = new LongHashSet();
+        private Set<Ipv6Address> ipv6Visitors = new HashSet<>();
+        private boolean exact = true;
+
+        void addHits(long hits) {
+            total.add(hits);
+        }
+
+        void addVisitor(String ip, int maxExactVisitors) {
+            lock.lock();
+            try {
+                if (!exact) {
+                    return;
+                }
+                boolean added = IpAddressMapper.isIpv6(ip) ? ipv6Visitors.add(IpAddressMapper.toIpv6(ip))
+                        : visitors.add(IpAddressMapper.toKey(ip));
+                if (added && visitors.size() + ipv6Visitors.size() > maxExactVisitors) {
+                    exact = false;
+                    visitors = null;
+                    ipv6Visitors = null;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long total() {
+            return total.sum();
+        }
+
+        long unique() {
+            lock.lock();
+            try {
+                return exact ? visitors.size() + ipv6Visitors.size() : -1;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package ru.practicum.stats.server.counter;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.hot-counters")
+public class HotCounterProperties {
+    private boolean enabled = false;
+    private int maxUris = 100_000;
+    private int maxExactVisitors = 256;
+    private Duration rebuildRetryInterval = Duration.ofSeconds(10);
+}
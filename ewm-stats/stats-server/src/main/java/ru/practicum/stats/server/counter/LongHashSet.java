@@ -0,0 +1,72 @@
+package ru.practicum.stats.server.counter;
+
+import java.util.function.LongConsumer;
+
+public class LongHashSet {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] slots;
+    private boolean containsZero;
+    private int size;
+
+    public LongHashSet() {
+        this.slots = new long[INITIAL_CAPACITY];
+    }
+
+    public boolean add(long value) {
+        if (value == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        if ((size + 1) * 2 > slots.length) {
+            resize();
+        }
+        if (!insert(slots, value)) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void forEach(LongConsumer action) {
+        if (containsZero) {
+            action.accept(0);
+        }
+        for (long value : slots) {
+            if (value != 0) {
+                action.accept(value);
+            }
+        }
+    }
+
+    private void resize() {
+        long[] resized = new long[slots.length * 2];
+        for (long value : slots) {
+            if (value != 0) {
+                insert(resized, value);
+            }
+        }
+        slots = resized;
+    }
+
+    private static boolean insert(long[] table, long value) {
+        int mask = table.length - 1;
+        int index = (int) (value ^ (value >>> 32)) & mask;
+        while (table[index] != 0) {
+            if (table[index] == value) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        table[index] = value;
+        return true;
+    }
+}
@@ -0,0 +1,164 @@
+package ru.practicum.stats.server.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import ru.practicum.stats.server.thread.BackgroundThreads;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements SmartLifecycle, AutoCloseable {
+    private static final String LAG_QUERY = "SELECT CASE WHEN NOT pg_is_in_recovery() " +
+            "OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END";
+
+    private final HikariDataSource primary;
+    private final List<Replica> replicas;
+    private final StatsReplicaProperties properties;
+    private final BackgroundThreads threads;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile boolean running;
+    private Thread healthThread;
+
+    public ReplicaRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas,
+                                    StatsReplicaProperties properties, BackgroundThreads threads) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.properties = properties;
+        this.threads = threads;
+    }
+
+    public boolean hasReplicas() {
+        return !replicas.isEmpty();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection route(ConnectionSource source) throws SQLException {
+        int size = replicas.size();
+        int first = Math.floorMod(next.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((first + i) % size);
+            if (!replica.healthy) {
+                continue;
+            }
+            try {
+                return source.open(replica.dataSource);
+            } catch (SQLFeatureNotSupportedException e) {
+                throw e;
+            } catch (SQLException e) {
+                replica.markDown(e.getMessage());
+            }
+        }
+        return source.open(primary);
+    }
+
+    @Override
+    public void start() {
+        if (replicas.isEmpty()) {
+            return;
+        }
+        checkHealth();
+        running = true;
+        healthThread = threads.start("stats-replica-health", this::healthLoop);
+        log.info("Чтение статистики с реплик: {}, доступно {}", replicas.size(),
+                replicas.stream().filter(replica -> replica.healthy).count());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (healthThread != null) {
+            LockSupport.unpark(healthThread);
+            try {
+                healthThread.join(properties.getHealthCheckInterval().toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            healthThread = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    private void healthLoop() {
+        while (running) {
+            LockSupport.parkNanos(properties.getHealthCheckInterval().toNanos());
+            if (running) {
+                checkHealth();
+            }
+        }
+    }
+
+    private void checkHealth() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(LAG_QUERY)) {
+                rs.next();
+                long lagMillis = rs.getLong(1);
+                if (lagMillis > properties.getMaxLag().toMillis()) {
+                    replica.markDown("отставание " + lagMillis + " мс");
+                } else {
+                    replica.markUp();
+                }
+            } catch (SQLException e) {
+                replica.markDown(e.getMessage());
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection open(DataSource dataSource) throws SQLException;
+    }
+
+    private static class Replica {
+        private final HikariDataSource dataSource;
+        private volatile boolean healthy = true;
+
+        private Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        private void markDown(String reason) {
+            if (healthy) {
+                healthy = false;
+                log.warn("Реплика {} исключена из чтения: {}", dataSource.getPoolName(), reason);
+            }
+        }
+
+        private void markUp() {
+            if (!healthy) {
+                healthy = true;
+                log.info("Реплика {} снова используется для чтения", dataSource.getPoolName());
+            }
+        }
+    }
+}
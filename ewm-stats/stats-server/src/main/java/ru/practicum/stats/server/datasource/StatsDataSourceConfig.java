@@ -0,0 +1,67 @@
+package ru.practicum.stats.server.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import ru.practicum.stats.server.thread.BackgroundThreads;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+public class StatsDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+                                                             DataSourceProperties dataSourceProperties,
+                                                             StatsReplicaProperties properties,
+                                                             BackgroundThreads threads,
+                                                             MeterRegistry meterRegistry) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        if (properties.isEnabled()) {
+            for (String url : properties.getUrls()) {
+                HikariDataSource replica = dataSourceProperties.initializeDataSourceBuilder()
+                        .type(HikariDataSource.class)
+                        .url(url)
+                        .username(properties.getUsername() != null
+                                ? properties.getUsername() : dataSourceProperties.determineUsername())
+                        .password(properties.getPassword() != null
+                                ? properties.getPassword() : dataSourceProperties.determinePassword())
+                        .build();
+                replica.setPoolName("stats-replica-" + replicas.size());
+                replica.setReadOnly(true);
+                replica.setMaximumPoolSize(properties.getMaximumPoolSize());
+                replica.setConnectionTimeout(properties.getConnectionTimeout().toMillis());
+                replica.setInitializationFailTimeout(-1);
+                replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+                replicas.add(replica);
+            }
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, properties, threads);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaRoutingDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        if (replicaRoutingDataSource.hasReplicas()) {
+            dataSource.setReadOnlyDataSource(replicaRoutingDataSource);
+        }
+        return dataSource;
+    }
+}
@@ -0,0 +1,23 @@
+package ru.practicum.stats.server.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.replicas")
+public class StatsReplicaProperties {
+    private boolean enabled = false;
+    private List<String> urls = new ArrayList<>();
+    private String username;
+    private String password;
+    private int maximumPoolSize = 10;
+    private Duration connectionTimeout = Duration.ofSeconds(1);
+    private Duration healthCheckInterval = Duration.ofSeconds(5);
+    private Duration maxLag = Duration.ofSeconds(10);
+}
@@ -0,0 +1,124 @@
+package ru.practicum.stats.server.dictionary;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.server.model.EndpointHit;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+@Slf4j
+@Component
+@DependsOn("statsSchemaMigrator")
+public class StatsDictionary {
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate insertTemplate;
+    private final Entries apps = new Entries("stats_app", "name");
+    private final Entries uris = new Entries("stats_uri", "uri");
+
+    public StatsDictionary(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.insertTemplate = new TransactionTemplate(transactionManager);
+        this.insertTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    public void load() {
+        loadAll(apps);
+        loadAll(uris);
+        log.info("Загружен словарь статистики: {} приложений, {} uri", apps.ids.size(), uris.ids.size());
+    }
+
+    public void resolve(Collection<EndpointHit> hits) {
+        register(apps, hits, EndpointHit::getApp);
+        register(uris, hits, EndpointHit::getUri);
+        for (EndpointHit hit : hits) {
+            hit.setAppId(apps.ids.get(hit.getApp()));
+            hit.setUriId(uris.ids.get(hit.getUri()));
+        }
+    }
+
+    public List<Integer> findUriIds(Collection<String> values) {
+        List<String> missing = values.stream().filter(uri -> !uris.ids.containsKey(uri)).distinct().toList();
+        if (!missing.isEmpty()) {
+            load(uris, missing);
+        }
+        return values.stream().map(uris.ids::get).filter(Objects::nonNull).distinct().toList();
+    }
+
+    public String app(int id) {
+        return name(apps, id);
+    }
+
+    public String uri(int id) {
+        return name(uris, id);
+    }
+
+    private void register(Entries entries, Collection<EndpointHit> hits, Function<EndpointHit, String> value) {
+        List<String> missing = hits.stream().map(value).filter(name -> !entries.ids.containsKey(name))
+                .sorted().distinct().toList();
+        if (missing.isEmpty()) {
+            return;
+        }
+        insertTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("INSERT INTO public." + entries.table + " (" + entries.column + ") " +
+                    "SELECT unnest(?) ORDER BY 1 ON CONFLICT (" + entries.column + ") DO NOTHING",
+                    ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", missing.toArray())));
+            load(entries, missing);
+        });
+    }
+
+    private String name(Entries entries, int id) {
+        String name = entries.names.get(id);
+        if (name == null) {
+            jdbcTemplate.query("SELECT id, " + entries.column + " FROM public." + entries.table + " WHERE id = ?",
+                    rs -> {
+                        entries.put(rs.getInt(1), rs.getString(2));
+                    }, id);
+            name = entries.names.get(id);
+        }
+        return name;
+    }
+
+    private void loadAll(Entries entries) {
+        jdbcTemplate.query("SELECT id, " + entries.column + " FROM public." + entries.table, rs -> {
+            entries.put(rs.getInt(1), rs.getString(2));
+        });
+    }
+
+    private void load(Entries entries, List<String> names) {
+        jdbcTemplate.query("SELECT id, " + entries.column + " FROM public." + entries.table +
+                        " WHERE " + entries.column + " = ANY(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", names.toArray())),
+                rs -> {
+                    entries.put(rs.getInt(1), rs.getString(2));
+                });
+    }
+
+    private static class Entries {
+        private final String table;
+        private final String column;
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        private final Map<Integer, String> names = new ConcurrentHashMap<>();
+
+        Entries(String table, String column) {
+            this.table = table;
+            this.column = column;
+        }
+
+        void put(int id, String name) {
+            names.put(id, name);
+            ids.put(name, id);
+        }
+    }
+}
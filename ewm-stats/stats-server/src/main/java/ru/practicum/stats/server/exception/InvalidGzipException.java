@@ -0,0 +1,13 @@
+package ru.practicum.stats.server.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.io.IOException;
+
+@ResponseStatus(value = HttpStatus.BAD_REQUEST, reason = "Некорректное сжатое тело запроса")
+public class InvalidGzipException extends IOException {
+    public InvalidGzipException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
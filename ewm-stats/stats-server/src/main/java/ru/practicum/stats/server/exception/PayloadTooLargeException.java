@@ -0,0 +1,13 @@
+package ru.practicum.stats.server.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.io.IOException;
+
+@ResponseStatus(value = HttpStatus.PAYLOAD_TOO_LARGE, reason = "Распакованное тело запроса слишком велико")
+public class PayloadTooLargeException extends IOException {
+    public PayloadTooLargeException(String message) {
+        super(message);
+    }
+}
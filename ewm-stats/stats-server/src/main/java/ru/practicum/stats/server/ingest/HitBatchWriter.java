@@ -0,0 +1,97 @@
+package ru.practicum.stats.server.ingest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.server.cache.StatsQueryCache;
+import ru.practicum.stats.server.counter.HitCounterStore;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.repository.StatsBatchRepository;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Component
+public class HitBatchWriter {
+    private static final List<String> TRANSIENT_SQL_STATE_CLASSES = List.of("08", "40", "53", "57");
+
+    private final StatsBatchRepository batchRepository;
+    private final StatsQueryCache queryCache;
+    private final HitCounterStore counterStore;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer flushTimer;
+    private final Counter writtenHits;
+
+    public HitBatchWriter(StatsBatchRepository batchRepository, StatsQueryCache queryCache,
+                          HitCounterStore counterStore, TransactionTemplate transactionTemplate,
+                          MeterRegistry meterRegistry) {
+        this.batchRepository = batchRepository;
+        this.queryCache = queryCache;
+        this.counterStore = counterStore;
+        this.transactionTemplate = transactionTemplate;
+        this.flushTimer = Timer.builder("stats.ingest.flush")
+                .description("Время записи пачки вызовов в базу")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.writtenHits = Counter.builder("stats.ingest.written")
+                .description("Количество вызовов, записанных в базу")
+                .register(meterRegistry);
+    }
+
+    public void write(List<EndpointHit> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        flushTimer.record(() -> transactionTemplate.executeWithoutResult(status -> {
+            batchRepository.saveAll(hits);
+            counterStore.recordOnCommit(hits);
+        }));
+        writtenHits.increment(hits.size());
+        queryCache.onIngested(hits);
+    }
+
+    public List<EndpointHit> writeEach(List<EndpointHit> hits) {
+        List<EndpointHit> rejected = new ArrayList<>();
+        for (EndpointHit hit : hits) {
+            try {
+                write(List.of(hit));
+            } catch (RuntimeException e) {
+                if (!isDataError(e)) {
+                    throw e;
+                }
+                log.warn("Вызов {} отклонен базой: {}", hit, e.getMessage());
+                rejected.add(hit);
+            }
+        }
+        return rejected;
+    }
+
+    public static boolean isDataError(RuntimeException e) {
+        if (e instanceof DataAccessException dataAccess) {
+            return dataAccess.getMostSpecificCause() instanceof SQLException cause && cause.getSQLState() != null
+                    && (cause.getSQLState().startsWith("22") || cause.getSQLState().startsWith("23"));
+        }
+        return e instanceof NullPointerException || e instanceof IllegalArgumentException;
+    }
+
+    public static boolean isTransient(RuntimeException e) {
+        if (e instanceof TransientDataAccessException || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException || e instanceof CannotCreateTransactionException) {
+            return true;
+        }
+        return NestedExceptionUtils.getMostSpecificCause(e) instanceof SQLException cause
+                && cause.getSQLState() != null
+                && TRANSIENT_SQL_STATE_CLASSES.contains(cause.getSQLState().substring(0, 2));
+    }
+}
@@ -0,0 +1,18 @@
+package ru.practicum.stats.server.ingest;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.ingest")
+public class HitIngestProperties {
+    private boolean async = false;
+    private int queueCapacity = 10_000;
+    private int batchSize = 500;
+    private Duration flushInterval = Duration.ofMillis(200);
+    private Duration shutdownTimeout = Duration.ofSeconds(10);
+}
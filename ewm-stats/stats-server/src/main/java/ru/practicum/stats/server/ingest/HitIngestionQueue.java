@@ -0,0 +1,159 @@
+package ru.practicum.stats.server.ingest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.thread.BackgroundThreads;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Component
+public class HitIngestionQueue implements SmartLifecycle {
+    private final HitIngestProperties properties;
+    private final HitBatchWriter batchWriter;
+    private final BackgroundThreads threads;
+    private final BlockingQueue<EndpointHit> queue;
+    private final Counter overflowCounter;
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public HitIngestionQueue(HitIngestProperties properties, HitBatchWriter batchWriter, BackgroundThreads threads,
+                             MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.batchWriter = batchWriter;
+        this.threads = threads;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.overflowCounter = Counter.builder("stats.ingest.queue.overflow")
+                .description("Количество вызовов, записанных синхронно из-за переполнения очереди")
+                .register(meterRegistry);
+        Gauge.builder("stats.ingest.queue.size", queue, BlockingQueue::size)
+                .description("Количество вызовов, ожидающих записи в базу")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.isAsync() && running;
+    }
+
+    public boolean offer(EndpointHit hit) {
+        if (!isEnabled()) {
+            return false;
+        }
+        if (queue.offer(hit)) {
+            return true;
+        }
+        overflowCounter.increment();
+        return false;
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isAsync()) {
+            return;
+        }
+        running = true;
+        writerThread = threads.start("stats-hit-writer", this::drainLoop);
+        log.info("Асинхронная запись вызовов запущена: batchSize={}, flushInterval={}",
+                properties.getBatchSize(), properties.getFlushInterval());
+    }
+
+    @Override
+    public void stop() {
+        if (writerThread == null) {
+            return;
+        }
+        running = false;
+        try {
+            writerThread.join(properties.getShutdownTimeout().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            log.warn("Не удалось записать {} вызовов при остановке", queue.size());
+        }
+        writerThread = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE - 4096;
+    }
+
+    private void drainLoop() {
+        List<EndpointHit> batch = new ArrayList<>(properties.getBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                fillBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            flush(batch);
+        }
+    }
+
+    private void fillBatch(List<EndpointHit> batch) throws InterruptedException {
+        long flushIntervalNanos = properties.getFlushInterval().toNanos();
+        EndpointHit first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (batch.size() < properties.getBatchSize()) {
+            queue.drainTo(batch, properties.getBatchSize() - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= properties.getBatchSize() || remaining <= 0 || !running) {
+                return;
+            }
+            EndpointHit next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void writeEach(List<EndpointHit> batch) {
+        try {
+            List<EndpointHit> rejected = batchWriter.writeEach(batch);
+            if (!rejected.isEmpty()) {
+                log.error("Отброшено {} вызовов из пачки в {}", rejected.size(), batch.size());
+            }
+        } catch (RuntimeException e) {
+            log.error("Не удалось записать пачку из {} вызовов", batch.size(), e);
+        }
+    }
+
+    private void flush(List<EndpointHit> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            batchWriter.write(batch);
+            log.debug("Записано {} вызовов", batch.size());
+        } catch (RuntimeException e) {
+            log.warn("Не удалось записать пачку из {} вызовов, запись по одному", batch.size(), e);
+            writeEach(batch);
+        }
+        batch.clear();
+    }
+}
@@ -0,0 +1,121 @@
+package ru.practicum.stats.server.mapper;
+
+import lombok.experimental.UtilityClass;
+
+import java.util.Arrays;
+
+@UtilityClass
+public class IpAddressMapper {
+    private static final long IPV4_PREFIX = 0xFFFFL << 32;
+
+    /**
+     * 64-битный ключ адреса для HLL-скетчей. IPv4 и IPv4-mapped адреса отображаются без потерь, а 128 бит
+     * IPv6 сворачиваются в 64, и два разных адреса могут получить один ключ. Для скетчей это добавляет
+     * ничтожную погрешность к оценке; точный подсчет IPv6 должен использовать {@link #toIpv6(String)}.
+     */
+    public static long toKey(String ip) {
+        if (ip == null || ip.isEmpty()) {
+            throw new IllegalArgumentException("Пустой ip адрес");
+        }
+        if (ip.indexOf(':') < 0) {
+            return IPV4_PREFIX | parseIpv4(ip);
+        }
+        long[] halves = parseIpv6(ip);
+        if (halves[0] == 0 && (halves[1] >>> 32) == 0xFFFFL) {
+            return halves[1];
+        }
+        return (halves[0] * 0x9E3779B97F4A7C15L) ^ halves[1];
+    }
+
+    public static boolean isIpv6(String ip) {
+        return ip != null && ip.indexOf(':') >= 0;
+    }
+
+    public static Ipv6Address toIpv6(String ip) {
+        if (!isIpv6(ip)) {
+            throw new IllegalArgumentException("Некорректный ip адрес: " + ip);
+        }
+        long[] halves = parseIpv6(ip);
+        return new Ipv6Address(halves[0], halves[1]);
+    }
+
+    private static long[] parseIpv6(String ip) {
+        int gap = ip.indexOf("::");
+        if (gap >= 0 && ip.indexOf("::", gap + 1) >= 0) {
+            throw new IllegalArgumentException("Некорректный ip адрес: " + ip);
+        }
+        int[] head = parseGroups(gap < 0 ? ip : ip.substring(0, gap), gap < 0, ip);
+        int[] tail = gap < 0 ? new int[0] : parseGroups(ip.substring(gap + 2), true, ip);
+        int missing = 8 - head.length - tail.length;
+        if (gap < 0 ? missing != 0 : missing < 1) {
+            throw new IllegalArgumentException("Некорректный ip адрес: " + ip);
+        }
+        int[] groups = new int[8];
+        System.arraycopy(head, 0, groups, 0, head.length);
+        System.arraycopy(tail, 0, groups, 8 - tail.length, tail.length);
+        long high = 0;
+        long low = 0;
+        for (int i = 0; i < 4; i++) {
+            high = (high << 16) | groups[i];
+            low = (low << 16) | groups[i + 4];
+        }
+        return new long[]{high, low};
+    }
+
+    private static int[] parseGroups(String part, boolean last, String ip) {
+        if (part.isEmpty()) {
+            return new int[0];
+        }
+        String[] pieces = part.split(":", -1);
+        int[] groups = new int[pieces.length + 1];
+        int count = 0;
+        for (int i = 0; i < pieces.length; i++) {
+            String piece = pieces[i];
+            if (last && i == pieces.length - 1 && piece.indexOf('.') >= 0) {
+                long ipv4 = parseIpv4(piece);
+                groups[count++] = (int) (ipv4 >>> 16);
+                groups[count++] = (int) (ipv4 & 0xFFFF);
+            } else if (piece.isEmpty() || piece.length() > 4) {
+                throw new IllegalArgumentException("Некорректный ip адрес: " + ip);
+            } else {
+                int group = 0;
+                for (int j = 0; j < piece.length(); j++) {
+                    int digit = Character.digit(piece.charAt(j), 16);
+                    if (digit < 0) {
+                        throw new IllegalArgumentException("Некорректный ip адрес: " + ip);
+                    }
+                    group = (group << 4) | digit;
+                }
+                groups[count++] = group;
+            }
+        }
+        return Arrays.copyOf(groups, count);
+    }
+
+    private static long parseIpv4(String ip) {
+        long address = 0;
+        int octet = -1;
+        int octets = 0;
+        for (int i = 0; i <= ip.length(); i++) {
+            char c = i < ip.length() ? ip.charAt(i) : '.';
+            if (c == '.') {
+                if (octet < 0 || ++octets > 4) {
+                    throw new IllegalArgumentException("Некорректный ip адрес: " + ip);
+                }
+                address = (address << 8) | octet;
+                octet = -1;
+            } else if (c >= '0' && c <= '9') {
+                octet = (octet < 0 ? 0 : octet * 10) + (c - '0');
+                if (octet > 255) {
+                    throw new IllegalArgumentException("Некорректный ip адрес: " + ip);
+                }
+            } else {
+                throw new IllegalArgumentException("Некорректный ip адрес: " + ip);
+            }
+        }
+        if (octets != 4) {
+            throw new IllegalArgumentException("Некорректный ip адрес: " + ip);
+        }
+        return address;
+    }
+}
@@ -0,0 +1,4 @@
+package ru.practicum.stats.server.mapper;
+
+public record Ipv6Address(long high, long low) {
+}
@@ -2,8 +2,10 @@ package ru.practicum.stats.server.mapper;
 
 import lombok.experimental.UtilityClass;
 import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.TimeSeriesPointDto;
 import ru.practicum.stats.dto.ViewStatsDto;
 import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.model.TimeSeriesPoint;
 import ru.practicum.stats.server.model.ViewStats;
 
 import java.util.Collection;
@@ -38,4 +40,10 @@ public class StatsMapper {
     public static ViewStatsDto toViewStatsDto(ViewStats stats) {
         return new ViewStatsDto(stats.getApp(), stats.getUri(), stats.getHits());
     }
+
+    public static List<TimeSeriesPointDto> toTimeSeriesPointDtos(Collection<TimeSeriesPoint> points) {
+        return points.stream()
+                .map(point -> new TimeSeriesPointDto(point.getApp(), point.getUri(), point.getBucket(), point.getHits()))
+                .toList();
+    }
 }
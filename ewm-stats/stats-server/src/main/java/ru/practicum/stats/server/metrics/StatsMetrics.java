@@ -0,0 +1,55 @@
+package ru.practicum.stats.server.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class StatsMetrics {
+    private static final int MAX_APP_TAGS = 100;
+    private static final String OTHER_APP = "other";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> ingestTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> queryTimers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> queryRows = new ConcurrentHashMap<>();
+    private final Map<String, Counter> appHits = new ConcurrentHashMap<>();
+
+    public StatsMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void recordIngest(String mode, Timer.Sample sample) {
+        sample.stop(ingestTimers.computeIfAbsent(mode, k -> Timer.builder("stats.ingest.latency")
+                .description("Время приема вызовов сервиса")
+                .tag("mode", k)
+                .publishPercentileHistogram()
+                .register(meterRegistry)));
+    }
+
+    public void recordQuery(String query, Timer.Sample sample, long rows) {
+        sample.stop(queryTimers.computeIfAbsent(query, k -> Timer.builder("stats.query.latency")
+                .description("Время выполнения запроса статистики")
+                .tag("query", k)
+                .publishPercentileHistogram()
+                .register(meterRegistry)));
+        queryRows.computeIfAbsent(query, k -> DistributionSummary.builder("stats.query.rows")
+                .description("Количество строк в ответе на запрос статистики")
+                .tag("query", k)
+                .publishPercentileHistogram()
+                .register(meterRegistry)).record(rows);
+    }
+
+    public void recordHits(String app, long hits) {
+        String tag = appHits.containsKey(app) || appHits.size() < MAX_APP_TAGS ? app : OTHER_APP;
+        appHits.computeIfAbsent(tag, k -> Counter.builder("stats.hits")
+                .description("Количество принятых вызовов по приложениям")
+                .tag("app", k)
+                .register(meterRegistry)).increment(hits);
+    }
+}
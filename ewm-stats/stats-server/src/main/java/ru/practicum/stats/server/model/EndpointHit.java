@@ -5,11 +5,13 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnTransformer;
 
 import java.time.LocalDateTime;
 
@@ -26,10 +28,15 @@ public class EndpointHit {
     @Id
     @GeneratedValue(strategy = IDENTITY)
     private Long id;
-    @Column(nullable = false, name = "app")
+    @Transient
     private String app;
-    @Column(nullable = false, name = "uri")
+    @Transient
     private String uri;
+    @Column(nullable = false, name = "app_id")
+    private Integer appId;
+    @Column(nullable = false, name = "uri_id")
+    private Integer uriId;
+    @ColumnTransformer(write = "?::inet")
     @Column(nullable = false, name = "user_ip")
     private String ip;
     @Column(nullable = false, name = "created")
@@ -0,0 +1,13 @@
+package ru.practicum.stats.server.model;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+public enum HitFileFormat {
+    CSV,
+    NDJSON;
+
+    public static Optional<HitFileFormat> from(String value) {
+        return Arrays.stream(values()).filter(format -> format.name().equalsIgnoreCase(value)).findFirst();
+    }
+}
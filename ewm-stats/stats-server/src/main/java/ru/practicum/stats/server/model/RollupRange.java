@@ -0,0 +1,35 @@
+package ru.practicum.stats.server.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+@Getter
+@AllArgsConstructor
+public class RollupRange {
+    private final LocalDateTime hourStart;
+    private final LocalDateTime hourEnd;
+    private final LocalDateTime dayStart;
+    private final LocalDateTime dayEnd;
+
+    public static RollupRange of(LocalDateTime start, LocalDateTime end) {
+        LocalDateTime hourStart = ceil(start, ChronoUnit.HOURS);
+        LocalDateTime hourEnd = end.truncatedTo(ChronoUnit.HOURS);
+        if (!hourStart.isBefore(hourEnd)) {
+            return new RollupRange(start, start, start, start);
+        }
+        LocalDateTime dayStart = ceil(hourStart, ChronoUnit.DAYS);
+        LocalDateTime dayEnd = hourEnd.truncatedTo(ChronoUnit.DAYS);
+        if (!dayStart.isBefore(dayEnd)) {
+            return new RollupRange(hourStart, hourEnd, hourStart, hourStart);
+        }
+        return new RollupRange(hourStart, hourEnd, dayStart, dayEnd);
+    }
+
+    private static LocalDateTime ceil(LocalDateTime time, ChronoUnit unit) {
+        LocalDateTime truncated = time.truncatedTo(unit);
+        return truncated.equals(time) ? time : truncated.plus(1, unit);
+    }
+}
@@ -0,0 +1,21 @@
+package ru.practicum.stats.server.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "stats_app", schema = "public")
+public class StatsApp {
+    @Id
+    private Integer id;
+    @Column(nullable = false, name = "name")
+    private String name;
+}
@@ -0,0 +1,18 @@
+package ru.practicum.stats.server.model;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+public enum TimeBucket {
+    MINUTE,
+    HOUR,
+    DAY;
+
+    public String sqlField() {
+        return name().toLowerCase();
+    }
+
+    public static Optional<TimeBucket> from(String value) {
+        return Arrays.stream(values()).filter(bucket -> bucket.name().equalsIgnoreCase(value)).findFirst();
+    }
+}
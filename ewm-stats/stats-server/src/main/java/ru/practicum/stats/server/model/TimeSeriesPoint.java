@@ -0,0 +1,21 @@
+package ru.practicum.stats.server.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Builder
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class TimeSeriesPoint {
+    private String app;
+    private String uri;
+    private LocalDateTime bucket;
+    private Long hits;
+}
@@ -0,0 +1,6 @@
+package ru.practicum.stats.server.partition;
+
+import java.time.LocalDateTime;
+
+public record ExpiredPartitionsDroppedEvent(LocalDateTime threshold) {
+}
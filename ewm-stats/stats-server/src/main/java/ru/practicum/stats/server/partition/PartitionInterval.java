@@ -0,0 +1,27 @@
+package ru.practicum.stats.server.partition;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+
+@Getter
+@RequiredArgsConstructor
+public enum PartitionInterval {
+    MONTH(ChronoUnit.MONTHS, DateTimeFormatter.ofPattern("yyyyMM")),
+    DAY(ChronoUnit.DAYS, DateTimeFormatter.ofPattern("yyyyMMdd"));
+
+    private final ChronoUnit unit;
+    private final DateTimeFormatter suffixFormat;
+
+    public LocalDateTime periodStart(LocalDateTime time) {
+        LocalDateTime day = time.truncatedTo(ChronoUnit.DAYS);
+        return this == MONTH ? day.withDayOfMonth(1) : day;
+    }
+
+    public LocalDateTime next(LocalDateTime periodStart) {
+        return periodStart.plus(1, unit);
+    }
+}
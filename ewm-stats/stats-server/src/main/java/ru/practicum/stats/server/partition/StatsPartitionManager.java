@@ -0,0 +1,168 @@
+package ru.practicum.stats.server.partition;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.server.schema.IpQuarantine;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StatsPartitionManager {
+    private static final String PARTITION_PREFIX = "stats_p";
+    private static final Pattern PARTITION_NAME = Pattern.compile("stats_p(\\d{6}|\\d{8})");
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final StatsPartitionProperties properties;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate.executeWithoutResult(status -> {
+            migrateLegacyTable();
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS public.stats_default PARTITION OF public.stats DEFAULT");
+        });
+        maintain();
+    }
+
+    @Scheduled(cron = "${stats.partition.maintenance-cron:0 0 * * * *}")
+    public void maintain() {
+        PartitionInterval interval = properties.getInterval();
+        LocalDateTime period = interval.periodStart(LocalDateTime.now());
+        for (int i = 0; i <= properties.getPrecreate(); i++) {
+            LocalDateTime periodStart = period;
+            transactionTemplate.executeWithoutResult(status -> createPartition(periodStart));
+            period = interval.next(period);
+        }
+        if (!properties.getRetention().isZero()) {
+            dropExpiredPartitions(LocalDateTime.now().minus(properties.getRetention()));
+        }
+    }
+
+    public void createPartitionsFor(String relation) {
+        for (LocalDateTime periodStart : periods(relation)) {
+            transactionTemplate.executeWithoutResult(status -> createPartition(periodStart));
+        }
+    }
+
+    private void migrateLegacyTable() {
+        String kind = jdbcTemplate.queryForObject("SELECT c.relkind::text FROM pg_class c " +
+                "JOIN pg_namespace n ON n.oid = c.relnamespace WHERE n.nspname = 'public' AND c.relname = 'stats'",
+                String.class);
+        if (!"r".equals(kind)) {
+            return;
+        }
+        log.info("Перенос таблицы stats в секционированную таблицу");
+        jdbcTemplate.execute("ALTER TABLE public.stats RENAME TO stats_legacy");
+        jdbcTemplate.execute("ALTER TABLE public.stats_legacy DROP CONSTRAINT IF EXISTS stats_pkey");
+        jdbcTemplate.execute("DROP INDEX IF EXISTS public.stats_created_idx");
+        jdbcTemplate.execute("DROP INDEX IF EXISTS public.stats_uri_created_idx");
+        DatabasePopulatorUtils.execute(new ResourceDatabasePopulator(new ClassPathResource("schema.sql")),
+                jdbcTemplate.getDataSource());
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS public.stats_default PARTITION OF public.stats DEFAULT");
+        int rejected = IpQuarantine.quarantine(jdbcTemplate, "stats_legacy");
+        if (rejected > 0) {
+            log.warn("{} вызовов с некорректным ip перенесено в stats_legacy_ip_quarantine", rejected);
+        }
+        List<LocalDateTime> periods = periods("public.stats_legacy");
+        periods.forEach(this::createPartition);
+        jdbcTemplate.execute("INSERT INTO public.stats_app (name) SELECT DISTINCT app FROM public.stats_legacy " +
+                "ORDER BY 1 ON CONFLICT (name) DO NOTHING");
+        jdbcTemplate.execute("INSERT INTO public.stats_uri (uri) SELECT DISTINCT uri FROM public.stats_legacy " +
+                "ORDER BY 1 ON CONFLICT (uri) DO NOTHING");
+        int moved = jdbcTemplate.update("INSERT INTO public.stats (id, app_id, uri_id, user_ip, created) " +
+                "SELECT l.id, a.id, u.id, l.user_ip::inet, l.created FROM public.stats_legacy l " +
+                "JOIN public.stats_app a ON a.name = l.app JOIN public.stats_uri u ON u.uri = l.uri");
+        jdbcTemplate.execute("SELECT setval('public.stats_hit_id_seq', " +
+                "COALESCE((SELECT MAX(id) FROM public.stats), 0) + 1, false)");
+        jdbcTemplate.execute("DROP TABLE public.stats_legacy");
+        log.info("Перенесено {} вызовов в {} секций", moved, periods.size());
+    }
+
+    private List<LocalDateTime> periods(String relation) {
+        return jdbcTemplate.queryForList("SELECT DISTINCT date_trunc(?, created) FROM " + relation, Timestamp.class,
+                        properties.getInterval().name().toLowerCase()).stream()
+                .map(Timestamp::toLocalDateTime)
+                .toList();
+    }
+
+    private void createPartition(LocalDateTime periodStart) {
+        PartitionInterval interval = properties.getInterval();
+        String name = PARTITION_PREFIX + periodStart.format(interval.getSuffixFormat());
+        Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class,
+                "public." + name);
+        if (Boolean.TRUE.equals(exists)) {
+            return;
+        }
+        String from = periodStart.format(BOUND_FORMAT);
+        String to = interval.next(periodStart).format(BOUND_FORMAT);
+        jdbcTemplate.execute("CREATE TABLE public." + name +
+                " (LIKE public.stats INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+        int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM public.stats_default " +
+                "WHERE created >= ?::timestamp AND created < ?::timestamp RETURNING *) " +
+                "INSERT INTO public." + name + " SELECT * FROM moved", from, to);
+        jdbcTemplate.execute("ALTER TABLE public.stats ATTACH PARTITION public." + name +
+                " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+        log.info("Создана секция {} [{}, {}), перенесено {} вызовов", name, from, to, moved);
+    }
+
+    private void dropExpiredPartitions(LocalDateTime threshold) {
+        List<String> partitions = jdbcTemplate.queryForList("SELECT c.relname::text FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = 'public.stats'::regclass", String.class);
+        boolean dropped = false;
+        for (String partition : partitions) {
+            LocalDateTime end = partitionEnd(partition);
+            if (end != null && !end.isAfter(threshold)) {
+                jdbcTemplate.execute("DROP TABLE public." + partition);
+                log.info("Удалена устаревшая секция {}", partition);
+                dropped = true;
+            }
+        }
+        // вызовы в секции по умолчанию удаляются по той же границе, что и целые секции
+        LocalDateTime defaultThreshold = properties.getInterval().periodStart(threshold);
+        int deleted = jdbcTemplate.update("DELETE FROM public.stats_default WHERE created < ?",
+                Timestamp.valueOf(defaultThreshold));
+        if (deleted > 0) {
+            log.info("Из секции stats_default удалено {} устаревших вызовов старше {}", deleted, defaultThreshold);
+            dropped = true;
+        }
+        if (dropped) {
+            eventPublisher.publishEvent(new ExpiredPartitionsDroppedEvent(threshold));
+        }
+    }
+
+    private LocalDateTime partitionEnd(String partition) {
+        Matcher matcher = PARTITION_NAME.matcher(partition);
+        if (!matcher.matches()) {
+            return null;
+        }
+        String suffix = matcher.group(1);
+        try {
+            if (suffix.length() == 6) {
+                return LocalDate.parse(suffix + "01", DateTimeFormatter.BASIC_ISO_DATE).atStartOfDay().plusMonths(1);
+            }
+            return LocalDate.parse(suffix, DateTimeFormatter.BASIC_ISO_DATE).atStartOfDay().plusDays(1);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package ru.practicum.stats.server.partition;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.partition")
+public class StatsPartitionProperties {
+    private PartitionInterval interval = PartitionInterval.MONTH;
+    private int precreate = 3;
+    private Duration retention = Duration.ZERO;
+}
@@ -0,0 +1,34 @@
+package ru.practicum.stats.server.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.stats.server.dictionary.StatsDictionary;
+import ru.practicum.stats.server.model.EndpointHit;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class StatsBatchRepository {
+    private static final String INSERT_HIT =
+            "INSERT INTO public.stats (app_id, uri_id, user_ip, created) VALUES (?, ?, ?::inet, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StatsDictionary dictionary;
+    private final StatsRollupRepository rollupRepository;
+
+    @Transactional
+    public void saveAll(List<EndpointHit> hits) {
+        dictionary.resolve(hits);
+        jdbcTemplate.batchUpdate(INSERT_HIT, hits, hits.size(), (ps, hit) -> {
+            ps.setInt(1, hit.getAppId());
+            ps.setInt(2, hit.getUriId());
+            ps.setString(3, hit.getIp());
+            ps.setTimestamp(4, Timestamp.valueOf(hit.getCreated()));
+        });
+        rollupRepository.addHits(hits);
+    }
+}
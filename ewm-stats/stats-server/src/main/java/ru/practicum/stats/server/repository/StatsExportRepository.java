@@ -0,0 +1,49 @@
+package ru.practicum.stats.server.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.stats.server.model.HitFileFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+@Repository
+@RequiredArgsConstructor
+public class StatsExportRepository {
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS");
+    private static final String HITS_QUERY = "SELECT %s FROM public.stats s " +
+            "JOIN public.stats_app a ON a.id = s.app_id " +
+            "JOIN public.stats_uri u ON u.id = s.uri_id " +
+            "WHERE s.created BETWEEN '%s'::timestamp AND '%s'::timestamp";
+    private static final String CSV_COLUMNS = "s.id, a.name AS app, u.uri, host(s.user_ip) AS ip, " +
+            "to_char(s.created, 'YYYY-MM-DD HH24:MI:SS') AS timestamp";
+    private static final String JSON_COLUMNS = "json_build_object('id', s.id, 'app', a.name, 'uri', u.uri, " +
+            "'ip', host(s.user_ip), 'timestamp', to_char(s.created, 'YYYY-MM-DD HH24:MI:SS'))::text";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public long export(LocalDateTime start, LocalDateTime end, HitFileFormat format, OutputStream out) {
+        String from = start.format(BOUND_FORMAT);
+        String to = end.format(BOUND_FORMAT);
+        String sql = switch (format) {
+            case CSV -> "COPY (" + String.format(HITS_QUERY, CSV_COLUMNS, from, to) + ") " +
+                    "TO STDOUT WITH (FORMAT csv, HEADER)";
+            case NDJSON -> "COPY (" + String.format(HITS_QUERY, JSON_COLUMNS, from, to) + ") " +
+                    "TO STDOUT WITH (FORMAT csv, QUOTE E'\\x01', DELIMITER E'\\x02')";
+        };
+        Long rows = jdbcTemplate.execute((ConnectionCallback<Long>) con -> {
+            try {
+                return con.unwrap(PGConnection.class).getCopyAPI().copyOut(sql, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return rows == null ? 0 : rows;
+    }
+}
@@ -0,0 +1,117 @@
+package ru.practicum.stats.server.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.stats.server.model.HitFileFormat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Repository
+@RequiredArgsConstructor
+public class StatsImportRepository {
+    private static final String STAGING_PREFIX = "stats_import_";
+    // stats_import_<секунды создания>_<uuid>[_hits]; в старых именах времени создания нет
+    private static final Pattern STAGING_NAME = Pattern.compile("stats_import_(?:(\\d{1,18})_)?[0-9a-f]{32}(?:_hits)?");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public String createStaging() {
+        String table = STAGING_PREFIX + Instant.now().getEpochSecond() + "_"
+                + UUID.randomUUID().toString().replace("-", "");
+        jdbcTemplate.execute("CREATE UNLOGGED TABLE public." + table + " (id TEXT, app VARCHAR(255) NOT NULL, " +
+                "uri VARCHAR(255) NOT NULL, user_ip INET NOT NULL, created TIMESTAMP NOT NULL)");
+        return table;
+    }
+
+    public long copyIn(String table, HitFileFormat format, InputStream in) {
+        Long rows = jdbcTemplate.execute((ConnectionCallback<Long>) con -> {
+            try {
+                if (format == HitFileFormat.CSV) {
+                    return con.unwrap(PGConnection.class).getCopyAPI().copyIn("COPY public." + table +
+                            " (id, app, uri, user_ip, created) FROM STDIN WITH (FORMAT csv, HEADER)", in);
+                }
+                try (Statement statement = con.createStatement()) {
+                    statement.execute("CREATE TEMP TABLE " + table + "_lines (line TEXT)");
+                    try {
+                        con.unwrap(PGConnection.class).getCopyAPI().copyIn("COPY " + table + "_lines FROM STDIN " +
+                                "WITH (FORMAT csv, QUOTE E'\\x01', DELIMITER E'\\x02')", in);
+                        return (long) statement.executeUpdate("INSERT INTO public." + table +
+                                " (id, app, uri, user_ip, created) SELECT j->>'id', j->>'app', j->>'uri', " +
+                                "(j->>'ip')::inet, (j->>'timestamp')::timestamp " +
+                                "FROM (SELECT line::json AS j FROM " + table + "_lines WHERE btrim(line) <> '') l");
+                    } finally {
+                        statement.execute("DROP TABLE " + table + "_lines");
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return rows == null ? 0 : rows;
+    }
+
+    public String resolveIds(String table) {
+        jdbcTemplate.execute("INSERT INTO public.stats_app (name) SELECT DISTINCT app FROM public." + table +
+                " ORDER BY 1 ON CONFLICT (name) DO NOTHING");
+        jdbcTemplate.execute("INSERT INTO public.stats_uri (uri) SELECT DISTINCT uri FROM public." + table +
+                " ORDER BY 1 ON CONFLICT (uri) DO NOTHING");
+        String hits = table + "_hits";
+        jdbcTemplate.execute("CREATE UNLOGGED TABLE public." + hits + " AS " +
+                "SELECT a.id AS app_id, u.id AS uri_id, s.user_ip, s.created FROM public." + table + " s " +
+                "JOIN public.stats_app a ON a.name = s.app JOIN public.stats_uri u ON u.uri = s.uri");
+        return "public." + hits;
+    }
+
+    public List<String> findUris(String table) {
+        return jdbcTemplate.queryForList("SELECT DISTINCT uri FROM public." + table, String.class);
+    }
+
+    public Map<String, Long> countByApp(String table) {
+        Map<String, Long> counts = new HashMap<>();
+        jdbcTemplate.query("SELECT app, COUNT(*) AS hits FROM public." + table + " GROUP BY app",
+                rs -> {
+                    counts.put(rs.getString("app"), rs.getLong("hits"));
+                });
+        return counts;
+    }
+
+    public int insertHits(String hits) {
+        return jdbcTemplate.update("INSERT INTO public.stats (app_id, uri_id, user_ip, created) " +
+                "SELECT app_id, uri_id, user_ip, created FROM " + hits);
+    }
+
+    public void dropStaging(String table) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS public." + table + ", public." + table + "_hits");
+    }
+
+    public List<String> dropStagingCreatedBefore(Instant threshold) {
+        List<String> tables = jdbcTemplate.queryForList("SELECT tablename FROM pg_catalog.pg_tables " +
+                "WHERE schemaname = 'public' AND tablename LIKE 'stats\\_import\\_%'", String.class);
+        List<String> dropped = tables.stream()
+                .filter(table -> isStagingCreatedBefore(table, threshold))
+                .toList();
+        dropped.forEach(table -> jdbcTemplate.execute("DROP TABLE IF EXISTS public." + table));
+        return dropped;
+    }
+
+    private static boolean isStagingCreatedBefore(String table, Instant threshold) {
+        Matcher matcher = STAGING_NAME.matcher(table);
+        if (!matcher.matches()) {
+            return false;
+        }
+        return matcher.group(1) == null || Instant.ofEpochSecond(Long.parseLong(matcher.group(1))).isBefore(threshold);
+    }
+}
@@ -1,7 +1,9 @@
 package ru.practicum.stats.server.repository;
 
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 import ru.practicum.stats.server.model.EndpointHit;
 import org.springframework.data.repository.query.Param;
@@ -9,29 +11,63 @@ import ru.practicum.stats.server.model.ViewStats;
 
 import java.time.LocalDateTime;
 import java.util.Collection;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface StatsRepository extends JpaRepository<EndpointHit, Integer> {
-    @Query("SELECT new ru.practicum.stats.server.model.ViewStats(h.app, h.uri, " +
-            "CASE WHEN :unique = true THEN COUNT(DISTINCT h.ip) ELSE COUNT(h) END) " +
+    @Query("SELECT new ru.practicum.stats.server.model.ViewStats(a.name, u.uri, r.hits) " +
+            "FROM (SELECT h.appId AS appId, h.uriId AS uriId, " +
+            "CASE WHEN :unique = true THEN COUNT(DISTINCT h.ip) ELSE COUNT(h) END AS hits " +
             "FROM EndpointHit h " +
             "WHERE h.created BETWEEN :start AND :end " +
-            "AND (h.uri IN :uris) " +
-            "GROUP BY h.app, h.uri " +
-            "ORDER BY CASE WHEN :unique = true THEN COUNT(DISTINCT h.ip) ELSE COUNT(h) END DESC")
+            "AND (h.uriId IN :uriIds) " +
+            "GROUP BY h.appId, h.uriId) r " +
+            "JOIN StatsApp a ON a.id = r.appId " +
+            "JOIN StatsUri u ON u.id = r.uriId " +
+            "ORDER BY r.hits DESC")
     Collection<ViewStats> findStatsForUris(@Param("start") LocalDateTime start,
                                            @Param("end") LocalDateTime end,
-                                           @Param("uris") Collection<String> uris,
+                                           @Param("uriIds") Collection<Integer> uriIds,
                                            @Param("unique") Boolean unique);
 
-    @Query("SELECT new ru.practicum.stats.server.model.ViewStats(h.app, h.uri, " +
-            "CASE WHEN :unique = true THEN COUNT(DISTINCT h.ip) ELSE COUNT(h) END) " +
+    @Query("SELECT new ru.practicum.stats.server.model.ViewStats(a.name, u.uri, r.hits) " +
+            "FROM (SELECT h.appId AS appId, h.uriId AS uriId, " +
+            "CASE WHEN :unique = true THEN COUNT(DISTINCT h.ip) ELSE COUNT(h) END AS hits " +
             "FROM EndpointHit h " +
             "WHERE h.created BETWEEN :start AND :end " +
-            "GROUP BY h.app, h.uri " +
-            "ORDER BY CASE WHEN :unique = true THEN COUNT(DISTINCT h.ip) ELSE COUNT(h) END DESC")
+            "GROUP BY h.appId, h.uriId) r " +
+            "JOIN StatsApp a ON a.id = r.appId " +
+            "JOIN StatsUri u ON u.id = r.uriId " +
+            "ORDER BY r.hits DESC")
     Collection<ViewStats> findAllStats(@Param("start") LocalDateTime start,
                                        @Param("end") LocalDateTime end,
                                        @Param("unique") Boolean unique);
 
-}
\ No newline at end of file
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new ru.practicum.stats.server.model.ViewStats(a.name, u.uri, r.hits) " +
+            "FROM (SELECT h.appId AS appId, h.uriId AS uriId, COUNT(DISTINCT h.ip) AS hits " +
+            "FROM EndpointHit h " +
+            "WHERE h.created BETWEEN :start AND :end " +
+            "AND (h.uriId IN :uriIds) " +
+            "GROUP BY h.appId, h.uriId) r " +
+            "JOIN StatsApp a ON a.id = r.appId " +
+            "JOIN StatsUri u ON u.id = r.uriId " +
+            "ORDER BY r.hits DESC")
+    Stream<ViewStats> streamUniqueStatsForUris(@Param("start") LocalDateTime start,
+                                               @Param("end") LocalDateTime end,
+                                               @Param("uriIds") Collection<Integer> uriIds);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new ru.practicum.stats.server.model.ViewStats(a.name, u.uri, r.hits) " +
+            "FROM (SELECT h.appId AS appId, h.uriId AS uriId, COUNT(DISTINCT h.ip) AS hits " +
+            "FROM EndpointHit h " +
+            "WHERE h.created BETWEEN :start AND :end " +
+            "GROUP BY h.appId, h.uriId) r " +
+            "JOIN StatsApp a ON a.id = r.appId " +
+            "JOIN StatsUri u ON u.id = r.uriId " +
+            "ORDER BY r.hits DESC")
+    Stream<ViewStats> streamAllUniqueStats(@Param("start") LocalDateTime start,
+                                           @Param("end") LocalDateTime end);
+}
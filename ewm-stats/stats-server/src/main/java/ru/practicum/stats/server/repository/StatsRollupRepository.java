@@ -0,0 +1,167 @@
+package ru.practicum.stats.server.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.stats.server.dictionary.StatsDictionary;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.model.RollupRange;
+import ru.practicum.stats.server.model.TimeBucket;
+import ru.practicum.stats.server.model.TimeSeriesPoint;
+import ru.practicum.stats.server.model.ViewStats;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+@Repository
+public class StatsRollupRepository {
+    private static final int STREAM_FETCH_SIZE = 1000;
+    private static final String UPSERT_ROLLUP = "INSERT INTO public.%s (app_id, uri_id, bucket, hits) " +
+            "VALUES (?, ?, ?, ?) ON CONFLICT (app_id, uri_id, bucket) DO UPDATE SET hits = %1$s.hits + EXCLUDED.hits";
+    private static final String UPSERT_ROLLUP_FROM = "INSERT INTO public.%1$s (app_id, uri_id, bucket, hits) " +
+            "SELECT app_id, uri_id, date_trunc('%2$s', created), COUNT(*) FROM %3$s GROUP BY 1, 2, 3 ORDER BY 1, 2, 3 " +
+            "ON CONFLICT (app_id, uri_id, bucket) DO UPDATE SET hits = %1$s.hits + EXCLUDED.hits";
+    private static final Comparator<RollupKey> KEY_ORDER = Comparator.comparing(RollupKey::appId)
+            .thenComparing(RollupKey::uriId)
+            .thenComparing(RollupKey::bucket);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final NamedParameterJdbcTemplate streamingJdbcTemplate;
+    private final StatsDictionary dictionary;
+
+    public StatsRollupRepository(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+                                 DataSource dataSource, StatsDictionary dictionary) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.dictionary = dictionary;
+        JdbcTemplate streaming = new JdbcTemplate(dataSource);
+        streaming.setFetchSize(STREAM_FETCH_SIZE);
+        this.streamingJdbcTemplate = new NamedParameterJdbcTemplate(streaming);
+    }
+
+    public void addHits(List<EndpointHit> hits) {
+        upsert("stats_rollup_hourly", aggregate(hits, ChronoUnit.HOURS));
+        upsert("stats_rollup_daily", aggregate(hits, ChronoUnit.DAYS));
+    }
+
+    public void addFrom(String relation) {
+        jdbcTemplate.update(String.format(UPSERT_ROLLUP_FROM, "stats_rollup_hourly", "hour", relation));
+        jdbcTemplate.update(String.format(UPSERT_ROLLUP_FROM, "stats_rollup_daily", "day", relation));
+    }
+
+    public Collection<ViewStats> findStats(LocalDateTime start, LocalDateTime end, Collection<Integer> uriIds) {
+        return namedJdbcTemplate.query(statsQuery(uriIds), statsParams(start, end, uriIds), (rs, rowNum) ->
+                toViewStats(rs));
+    }
+
+    public void streamStats(LocalDateTime start, LocalDateTime end, Collection<Integer> uriIds,
+                            Consumer<ViewStats> consumer) {
+        streamingJdbcTemplate.query(statsQuery(uriIds), statsParams(start, end, uriIds), rs -> {
+            consumer.accept(toViewStats(rs));
+        });
+    }
+
+    public List<TimeSeriesPoint> findTimeSeries(LocalDateTime start, LocalDateTime end, Collection<Integer> uriIds,
+                                                TimeBucket bucket) {
+        return namedJdbcTemplate.query(timeSeriesQuery(uriIds, bucket), statsParams(start, end, uriIds),
+                (rs, rowNum) -> new TimeSeriesPoint(dictionary.app(rs.getInt("app_id")),
+                        dictionary.uri(rs.getInt("uri_id")), rs.getTimestamp("bucket").toLocalDateTime(),
+                        rs.getLong("hits")));
+    }
+
+    private ViewStats toViewStats(ResultSet rs) throws SQLException {
+        return new ViewStats(dictionary.app(rs.getInt("app_id")), dictionary.uri(rs.getInt("uri_id")),
+                rs.getLong("hits"));
+    }
+
+    private String statsQuery(Collection<Integer> uriIds) {
+        String uriFilter = uriIds == null || uriIds.isEmpty() ? "" : "AND uri_id IN (:uriIds) ";
+        return "SELECT app_id, uri_id, SUM(hits) AS hits FROM (" +
+                "SELECT app_id, uri_id, hits FROM public.stats_rollup_daily " +
+                "WHERE bucket >= :dayStart AND bucket < :dayEnd " + uriFilter +
+                "UNION ALL " +
+                "SELECT app_id, uri_id, hits FROM public.stats_rollup_hourly " +
+                "WHERE ((bucket >= :hourStart AND bucket < :dayStart) OR (bucket >= :dayEnd AND bucket < :hourEnd)) " +
+                uriFilter +
+                "UNION ALL " +
+                "SELECT app_id, uri_id, COUNT(*) AS hits FROM public.stats " +
+                "WHERE ((created >= :start AND created < :hourStart) OR (created >= :hourEnd AND created <= :end)) " +
+                uriFilter +
+                "GROUP BY app_id, uri_id" +
+                ") r GROUP BY app_id, uri_id ORDER BY hits DESC";
+    }
+
+    private String timeSeriesQuery(Collection<Integer> uriIds, TimeBucket bucket) {
+        String uriFilter = uriIds == null || uriIds.isEmpty() ? "" : "AND uri_id IN (:uriIds) ";
+        String field = bucket.sqlField();
+        StringBuilder parts = new StringBuilder();
+        if (bucket == TimeBucket.DAY) {
+            parts.append("SELECT app_id, uri_id, bucket, hits FROM public.stats_rollup_daily ")
+                    .append("WHERE bucket >= :dayStart AND bucket < :dayEnd ").append(uriFilter)
+                    .append("UNION ALL ")
+                    .append("SELECT app_id, uri_id, date_trunc('day', bucket), hits FROM public.stats_rollup_hourly ")
+                    .append("WHERE ((bucket >= :hourStart AND bucket < :dayStart) ")
+                    .append("OR (bucket >= :dayEnd AND bucket < :hourEnd)) ").append(uriFilter)
+                    .append("UNION ALL ");
+        } else if (bucket == TimeBucket.HOUR) {
+            parts.append("SELECT app_id, uri_id, bucket, hits FROM public.stats_rollup_hourly ")
+                    .append("WHERE bucket >= :hourStart AND bucket < :hourEnd ").append(uriFilter)
+                    .append("UNION ALL ");
+        }
+        String rawRange = bucket == TimeBucket.MINUTE
+                ? "created >= :start AND created <= :end "
+                : "((created >= :start AND created < :hourStart) OR (created >= :hourEnd AND created <= :end)) ";
+        parts.append("SELECT app_id, uri_id, date_trunc('").append(field).append("', created), COUNT(*) ")
+                .append("FROM public.stats WHERE ").append(rawRange).append(uriFilter)
+                .append("GROUP BY app_id, uri_id, date_trunc('").append(field).append("', created)");
+        return "SELECT app_id, uri_id, bucket, SUM(hits) AS hits FROM (" + parts +
+                ") r (app_id, uri_id, bucket, hits) GROUP BY app_id, uri_id, bucket ORDER BY uri_id, app_id, bucket";
+    }
+
+    private MapSqlParameterSource statsParams(LocalDateTime start, LocalDateTime end, Collection<Integer> uriIds) {
+        RollupRange range = RollupRange.of(start, end);
+        return new MapSqlParameterSource()
+                .addValue("start", Timestamp.valueOf(start))
+                .addValue("end", Timestamp.valueOf(end))
+                .addValue("hourStart", Timestamp.valueOf(range.getHourStart()))
+                .addValue("hourEnd", Timestamp.valueOf(range.getHourEnd()))
+                .addValue("dayStart", Timestamp.valueOf(range.getDayStart()))
+                .addValue("dayEnd", Timestamp.valueOf(range.getDayEnd()))
+                .addValue("uriIds", uriIds);
+    }
+
+    private Map<RollupKey, Long> aggregate(List<EndpointHit> hits, ChronoUnit unit) {
+        Map<RollupKey, Long> counts = new TreeMap<>(KEY_ORDER);
+        for (EndpointHit hit : hits) {
+            RollupKey key = new RollupKey(hit.getAppId(), hit.getUriId(), hit.getCreated().truncatedTo(unit));
+            counts.merge(key, 1L, Long::sum);
+        }
+        return counts;
+    }
+
+    private void upsert(String table, Map<RollupKey, Long> counts) {
+        List<Map.Entry<RollupKey, Long>> rows = new ArrayList<>(counts.entrySet());
+        jdbcTemplate.batchUpdate(String.format(UPSERT_ROLLUP, table), rows, rows.size(), (ps, row) -> {
+            ps.setInt(1, row.getKey().appId());
+            ps.setInt(2, row.getKey().uriId());
+            ps.setTimestamp(3, Timestamp.valueOf(row.getKey().bucket()));
+            ps.setLong(4, row.getValue());
+        });
+    }
+
+    private record RollupKey(int appId, int uriId, LocalDateTime bucket) {
+    }
+}
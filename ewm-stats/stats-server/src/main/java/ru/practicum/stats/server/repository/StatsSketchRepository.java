@@ -0,0 +1,177 @@
+package ru.practicum.stats.server.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.stats.server.dictionary.StatsDictionary;
+import ru.practicum.stats.server.mapper.IpAddressMapper;
+import ru.practicum.stats.server.model.RollupRange;
+import ru.practicum.stats.server.model.ViewStats;
+import ru.practicum.stats.server.sketch.HyperLogLog;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Repository
+@RequiredArgsConstructor
+public class StatsSketchRepository {
+    private static final int BACKFILL_CHUNK_SIZE = 1000;
+    private static final Comparator<SketchKey> KEY_ORDER = Comparator.comparing(SketchKey::appId)
+            .thenComparing(SketchKey::uriId)
+            .thenComparing(SketchKey::bucket);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final StatsDictionary dictionary;
+
+    /**
+     * Добавляет в скетчи вызовы, записанные после водяного знака. Вызовы незавершенных транзакций еще не
+     * видны, поэтому знак сдвигается на максимальный id прошлого прохода, только когда завершились все
+     * транзакции, начатые до его окончания; до этого хвост перечитывается, что для HLL безопасно.
+     */
+    @Transactional
+    public long foldNewHits() {
+        List<Map<String, Object>> watermarks = jdbcTemplate.queryForList("SELECT last_hit_id, pending_hit_id, " +
+                "pending_xmax FROM public.stats_hll_watermark FOR UPDATE SKIP LOCKED");
+        if (watermarks.isEmpty()) {
+            return 0;
+        }
+        Map<String, Object> watermark = watermarks.get(0);
+        Long xmin = jdbcTemplate.queryForObject("SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint",
+                Long.class);
+        Boolean empty = jdbcTemplate.queryForObject(
+                "SELECT NOT EXISTS (SELECT 1 FROM public.stats_hll_daily)", Boolean.class);
+        long from = Boolean.TRUE.equals(empty) ? 0 : ((Number) watermark.get("last_hit_id")).longValue();
+        long folded = addFrom("public.stats WHERE id > " + from);
+        Long max = jdbcTemplate.queryForObject("SELECT MAX(id) FROM public.stats WHERE id > ?", Long.class, from);
+        Long xmax = jdbcTemplate.queryForObject("SELECT pg_snapshot_xmax(pg_current_snapshot())::text::bigint",
+                Long.class);
+        long last = from;
+        if (watermark.get("pending_xmax") != null && xmin >= ((Number) watermark.get("pending_xmax")).longValue()) {
+            last = Math.max(last, ((Number) watermark.get("pending_hit_id")).longValue());
+        }
+        jdbcTemplate.update("UPDATE public.stats_hll_watermark SET last_hit_id = ?, pending_hit_id = ?, " +
+                "pending_xmax = ?", last, Math.max(max == null ? from : max, last), xmax);
+        return folded;
+    }
+
+    public long addFrom(String relation) {
+        Map<SketchKey, HyperLogLog> chunk = new TreeMap<>(KEY_ORDER);
+        long[] rows = {0};
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT app_id, uri_id, date_trunc('day', created) AS bucket, " +
+                    "host(user_ip) AS ip FROM " + relation + " " +
+                    "GROUP BY app_id, uri_id, date_trunc('day', created), user_ip");
+            ps.setFetchSize(BACKFILL_CHUNK_SIZE);
+            return ps;
+        }, rs -> {
+            SketchKey key = new SketchKey(rs.getInt("app_id"), rs.getInt("uri_id"),
+                    rs.getTimestamp("bucket").toLocalDateTime());
+            chunk.computeIfAbsent(key, k -> new HyperLogLog()).add(IpAddressMapper.toKey(rs.getString("ip")));
+            rows[0]++;
+            if (chunk.size() >= BACKFILL_CHUNK_SIZE) {
+                merge(chunk);
+                chunk.clear();
+            }
+        });
+        merge(chunk);
+        return rows[0];
+    }
+
+    public Collection<ViewStats> findUniqueStats(LocalDateTime start, LocalDateTime end, Collection<Integer> uriIds) {
+        RollupRange range = RollupRange.of(start, end);
+        String uriFilter = uriIds == null || uriIds.isEmpty() ? "" : "AND uri_id IN (:uriIds) ";
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", Timestamp.valueOf(start))
+                .addValue("end", Timestamp.valueOf(end))
+                .addValue("dayStart", Timestamp.valueOf(range.getDayStart()))
+                .addValue("dayEnd", Timestamp.valueOf(range.getDayEnd()))
+                .addValue("uriIds", uriIds);
+        // строки одного uri идут подряд, поэтому в памяти держится только текущий скетч
+        List<ViewStats> result = new ArrayList<>();
+        AppUri[] current = {null};
+        HyperLogLog[] sketch = {null};
+        namedJdbcTemplate.query("SELECT app_id, uri_id, sketch, NULL AS ip FROM public.stats_hll_daily " +
+                "WHERE bucket >= :dayStart AND bucket < :dayEnd " + uriFilter +
+                "UNION ALL SELECT DISTINCT app_id, uri_id, NULL::bytea, host(user_ip) FROM public.stats " +
+                "WHERE ((created >= :start AND created < :dayStart) OR (created >= :dayEnd AND created <= :end)) " +
+                uriFilter + "ORDER BY app_id, uri_id", params, rs -> {
+                    AppUri key = new AppUri(rs.getInt("app_id"), rs.getInt("uri_id"));
+                    if (!key.equals(current[0])) {
+                        addEstimate(current[0], sketch[0], result);
+                        current[0] = key;
+                        sketch[0] = new HyperLogLog();
+                    }
+                    byte[] bytes = rs.getBytes("sketch");
+                    if (bytes != null) {
+                        sketch[0].merge(HyperLogLog.fromBytes(bytes));
+                    } else {
+                        sketch[0].add(IpAddressMapper.toKey(rs.getString("ip")));
+                    }
+                });
+        addEstimate(current[0], sketch[0], result);
+        result.sort(Comparator.comparing(ViewStats::getHits).reversed());
+        return result;
+    }
+
+    private void addEstimate(AppUri key, HyperLogLog sketch, List<ViewStats> result) {
+        if (key != null) {
+            result.add(new ViewStats(dictionary.app(key.appId()), dictionary.uri(key.uriId()), sketch.estimate()));
+        }
+    }
+
+    private void merge(Map<SketchKey, HyperLogLog> sketches) {
+        if (sketches.isEmpty()) {
+            return;
+        }
+        List<SketchKey> keys = new ArrayList<>(sketches.keySet());
+        List<Long> locks = keys.stream().map(SketchKey::lockId).sorted().distinct().toList();
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock(id) FROM unnest(?) AS id ORDER BY id",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", locks.toArray())),
+                rs -> {
+                });
+        jdbcTemplate.query("SELECT s.app_id, s.uri_id, s.bucket, s.sketch FROM public.stats_hll_daily s " +
+                        "JOIN unnest(?, ?, ?) AS k(app_id, uri_id, bucket) " +
+                        "ON s.app_id = k.app_id AND s.uri_id = k.uri_id AND s.bucket = k.bucket",
+                ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("integer",
+                            keys.stream().map(SketchKey::appId).toArray()));
+                    ps.setArray(2, ps.getConnection().createArrayOf("integer",
+                            keys.stream().map(SketchKey::uriId).toArray()));
+                    ps.setArray(3, ps.getConnection().createArrayOf("timestamp",
+                            keys.stream().map(k -> Timestamp.valueOf(k.bucket())).toArray()));
+                },
+                rs -> {
+                    SketchKey key = new SketchKey(rs.getInt("app_id"), rs.getInt("uri_id"),
+                            rs.getTimestamp("bucket").toLocalDateTime());
+                    sketches.get(key).merge(HyperLogLog.fromBytes(rs.getBytes("sketch")));
+                });
+        jdbcTemplate.batchUpdate("INSERT INTO public.stats_hll_daily (app_id, uri_id, bucket, sketch) " +
+                "VALUES (?, ?, ?, ?) ON CONFLICT (app_id, uri_id, bucket) DO UPDATE SET sketch = EXCLUDED.sketch",
+                keys, keys.size(), (ps, key) -> {
+                    ps.setInt(1, key.appId());
+                    ps.setInt(2, key.uriId());
+                    ps.setTimestamp(3, Timestamp.valueOf(key.bucket()));
+                    ps.setBytes(4, sketches.get(key).toBytes());
+                });
+    }
+
+    private record SketchKey(int appId, int uriId, LocalDateTime bucket) {
+        long lockId() {
+            return HyperLogLog.hash(appId + "\n" + uriId + "\n" + bucket);
+        }
+    }
+
+    private record AppUri(int appId, int uriId) {
+    }
+}
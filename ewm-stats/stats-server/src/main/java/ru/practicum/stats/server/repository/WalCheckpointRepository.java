@@ -0,0 +1,27 @@
+package ru.practicum.stats.server.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.stats.server.wal.WalPosition;
+
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class WalCheckpointRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public Optional<WalPosition> find(String instanceId) {
+        return jdbcTemplate.query("SELECT segment, position FROM public.stats_wal_checkpoint WHERE instance_id = ?",
+                (rs, rowNum) -> new WalPosition(rs.getLong("segment"), rs.getInt("position")), instanceId)
+                .stream()
+                .findFirst();
+    }
+
+    public void save(String instanceId, WalPosition position) {
+        jdbcTemplate.update("INSERT INTO public.stats_wal_checkpoint (instance_id, segment, position) VALUES (?, ?, ?) " +
+                "ON CONFLICT (instance_id) DO UPDATE SET segment = EXCLUDED.segment, position = EXCLUDED.position",
+                instanceId, position.segment(), position.offset());
+    }
+}
@@ -0,0 +1,22 @@
+package ru.practicum.stats.server.schema;
+
+import lombok.experimental.UtilityClass;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Переносит строки, в которых user_ip не приводится к inet, в таблицу &lt;relation&gt;_ip_quarantine,
+ * чтобы последующее приведение user_ip::inet не обрывало миграцию.
+ */
+@UtilityClass
+public class IpQuarantine {
+
+    public static int quarantine(JdbcTemplate jdbcTemplate, String relation) {
+        jdbcTemplate.execute("CREATE OR REPLACE FUNCTION pg_temp.stats_try_inet(value text) RETURNS inet AS $$ " +
+                "BEGIN RETURN value::inet; EXCEPTION WHEN others THEN RETURN NULL; END $$ LANGUAGE plpgsql IMMUTABLE");
+        String quarantine = relation + "_ip_quarantine";
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS public." + quarantine + " (LIKE public." + relation + ")");
+        return jdbcTemplate.update("WITH rejected AS (DELETE FROM public." + relation + " " +
+                "WHERE pg_temp.stats_try_inet(user_ip::text) IS NULL RETURNING *) " +
+                "INSERT INTO public." + quarantine + " SELECT * FROM rejected");
+    }
+}
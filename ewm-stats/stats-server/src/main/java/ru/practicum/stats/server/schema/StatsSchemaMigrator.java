@@ -0,0 +1,98 @@
+package ru.practicum.stats.server.schema;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+@Slf4j
+@Component
+@DependsOn("statsPartitionManager")
+@RequiredArgsConstructor
+public class StatsSchemaMigrator {
+    private static final List<String> AGGREGATE_TABLES =
+            List.of("stats_rollup_hourly", "stats_rollup_daily", "stats_hll_daily");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void migrate() {
+        transactionTemplate.executeWithoutResult(status -> {
+            migrateIpColumn();
+            migrateDictionaryColumns();
+            migrateAggregateTables();
+            backfillRollups();
+        });
+    }
+
+    private void migrateIpColumn() {
+        String type = jdbcTemplate.queryForObject("SELECT data_type::text FROM information_schema.columns " +
+                "WHERE table_schema = 'public' AND table_name = 'stats' AND column_name = 'user_ip'", String.class);
+        if ("inet".equals(type)) {
+            return;
+        }
+        log.info("Перевод столбца stats.user_ip из {} в inet", type);
+        int rejected = IpQuarantine.quarantine(jdbcTemplate, "stats");
+        if (rejected > 0) {
+            log.warn("{} вызовов с некорректным ip перенесено в stats_ip_quarantine", rejected);
+        }
+        jdbcTemplate.execute("ALTER TABLE public.stats ALTER COLUMN user_ip TYPE inet USING user_ip::inet");
+        jdbcTemplate.execute("TRUNCATE public.stats_hll_daily");
+    }
+
+    private void migrateDictionaryColumns() {
+        if (hasColumn("stats", "uri")) {
+            convertDictionaryColumns();
+        }
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS stats_uri_created_idx ON public.stats (uri_id, created)");
+    }
+
+    private void convertDictionaryColumns() {
+        log.info("Перевод столбцов stats.app и stats.uri на словарные идентификаторы");
+        jdbcTemplate.execute("INSERT INTO public.stats_app (name) SELECT DISTINCT app FROM public.stats ORDER BY 1 " +
+                "ON CONFLICT (name) DO NOTHING");
+        jdbcTemplate.execute("INSERT INTO public.stats_uri (uri) SELECT DISTINCT uri FROM public.stats ORDER BY 1 " +
+                "ON CONFLICT (uri) DO NOTHING");
+        jdbcTemplate.execute("ALTER TABLE public.stats ADD COLUMN app_id INTEGER, ADD COLUMN uri_id INTEGER");
+        jdbcTemplate.execute("UPDATE public.stats s SET app_id = a.id, uri_id = u.id " +
+                "FROM public.stats_app a, public.stats_uri u WHERE a.name = s.app AND u.uri = s.uri");
+        jdbcTemplate.execute("ALTER TABLE public.stats ALTER COLUMN app_id SET NOT NULL, " +
+                "ALTER COLUMN uri_id SET NOT NULL, DROP COLUMN app, DROP COLUMN uri");
+    }
+
+    private void migrateAggregateTables() {
+        List<String> legacy = AGGREGATE_TABLES.stream().filter(table -> hasColumn(table, "uri")).toList();
+        if (legacy.isEmpty()) {
+            return;
+        }
+        log.info("Пересоздание агрегатов {} со словарными идентификаторами", legacy);
+        legacy.forEach(table -> jdbcTemplate.execute("DROP TABLE public." + table));
+        DatabasePopulatorUtils.execute(new ResourceDatabasePopulator(new ClassPathResource("schema.sql")),
+                jdbcTemplate.getDataSource());
+    }
+
+    private void backfillRollups() {
+        jdbcTemplate.update("INSERT INTO public.stats_rollup_hourly (app_id, uri_id, bucket, hits) " +
+                "SELECT app_id, uri_id, date_trunc('hour', created), COUNT(*) FROM public.stats " +
+                "WHERE NOT EXISTS (SELECT 1 FROM public.stats_rollup_hourly) " +
+                "GROUP BY app_id, uri_id, date_trunc('hour', created)");
+        jdbcTemplate.update("INSERT INTO public.stats_rollup_daily (app_id, uri_id, bucket, hits) " +
+                "SELECT app_id, uri_id, date_trunc('day', created), COUNT(*) FROM public.stats " +
+                "WHERE NOT EXISTS (SELECT 1 FROM public.stats_rollup_daily) " +
+                "GROUP BY app_id, uri_id, date_trunc('day', created)");
+    }
+
+    private boolean hasColumn(String table, String column) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM information_schema.columns " +
+                "WHERE table_schema = 'public' AND table_name = ? AND column_name = ?)", Boolean.class, table, column));
+    }
+}
@@ -0,0 +1,34 @@
+package ru.practicum.stats.server.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.server.repository.StatsImportRepository;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Удаляет промежуточные таблицы импорта, оставшиеся после аварийной остановки сервера. Таблица считается
+ * брошенной, если она создана раньше чем stats.import.staging-ttl назад: импорт, который еще идет на другом
+ * экземпляре сервера, так не задевается.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ImportStagingCleaner {
+    private final StatsImportRepository importRepository;
+    private final StatsImportProperties properties;
+
+    @PostConstruct
+    @Scheduled(cron = "${stats.partition.maintenance-cron:0 0 * * * *}")
+    public void clean() {
+        Instant threshold = Instant.now().minus(properties.getStagingTtl());
+        List<String> dropped = importRepository.dropStagingCreatedBefore(threshold);
+        if (!dropped.isEmpty()) {
+            log.warn("Удалены брошенные таблицы импорта: {}", dropped);
+        }
+    }
+}
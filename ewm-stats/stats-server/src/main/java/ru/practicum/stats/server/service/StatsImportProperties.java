@@ -0,0 +1,14 @@
+package ru.practicum.stats.server.service;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.import")
+public class StatsImportProperties {
+    private Duration stagingTtl = Duration.ofDays(1);
+}
@@ -2,14 +2,36 @@ package ru.practicum.stats.server.service;
 
 import org.springframework.stereotype.Service;
 import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.HitImportResultDto;
+import ru.practicum.stats.dto.TimeSeriesPointDto;
 import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.model.HitFileFormat;
 
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.function.Consumer;
 
 @Service
 public interface StatsService {
     void saveHit(EndpointHitDto event);
 
-    Collection<ViewStatsDto> getStatistics(LocalDateTime start, LocalDateTime end, Collection<String> uris, Boolean unique);
+    int saveHits(Iterator<EndpointHitDto> events);
+
+    Collection<ViewStatsDto> getStatistics(LocalDateTime start, LocalDateTime end, Collection<String> uris, Boolean unique,
+                                           Boolean approx);
+
+    void streamStatistics(LocalDateTime start, LocalDateTime end, Collection<String> uris, Boolean unique,
+                          Boolean approx, Consumer<ViewStatsDto> consumer);
+
+    Collection<TimeSeriesPointDto> getTimeSeries(LocalDateTime start, LocalDateTime end, Collection<String> uris,
+                                                 String bucket);
+
+    long exportHits(LocalDateTime start, LocalDateTime end, HitFileFormat format, OutputStream out);
+
+    HitImportResultDto importHits(HitFileFormat format, InputStream in);
+
+    Collection<ViewStatsDto> getTop(LocalDateTime start, LocalDateTime end, int limit, boolean exact);
 }
@@ -1,39 +1,307 @@
 package ru.practicum.stats.server.service;
 
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.HitImportResultDto;
+import ru.practicum.stats.dto.TimeSeriesPointDto;
 import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.cache.StatsQueryCache;
+import ru.practicum.stats.server.counter.HitCounterStore;
+import ru.practicum.stats.server.dictionary.StatsDictionary;
 import ru.practicum.stats.server.exception.BadRequestException;
+import ru.practicum.stats.server.ingest.HitBatchWriter;
+import ru.practicum.stats.server.ingest.HitIngestProperties;
+import ru.practicum.stats.server.ingest.HitIngestionQueue;
+import ru.practicum.stats.server.mapper.IpAddressMapper;
 import ru.practicum.stats.server.mapper.StatsMapper;
+import ru.practicum.stats.server.metrics.StatsMetrics;
 import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.model.HitFileFormat;
+import ru.practicum.stats.server.model.TimeBucket;
+import ru.practicum.stats.server.model.ViewStats;
+import ru.practicum.stats.server.partition.StatsPartitionManager;
+import ru.practicum.stats.server.repository.StatsExportRepository;
+import ru.practicum.stats.server.repository.StatsImportRepository;
 import ru.practicum.stats.server.repository.StatsRepository;
+import ru.practicum.stats.server.repository.StatsRollupRepository;
+import ru.practicum.stats.server.repository.StatsSketchRepository;
+import ru.practicum.stats.server.trending.TrendingStore;
+import ru.practicum.stats.server.wal.HitWal;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class StatsServiceImpl implements StatsService {
     private final StatsRepository repository;
+    private final StatsRollupRepository rollupRepository;
+    private final StatsSketchRepository sketchRepository;
+    private final HitIngestionQueue ingestionQueue;
+    private final HitBatchWriter batchWriter;
+    private final HitIngestProperties ingestProperties;
+    private final HitCounterStore counterStore;
+    private final StatsDictionary dictionary;
+    private final TrendingStore trendingStore;
+    private final HitWal hitWal;
+    private final StatsQueryCache queryCache;
+    private final StatsExportRepository exportRepository;
+    private final StatsImportRepository importRepository;
+    private final StatsPartitionManager partitionManager;
+    private final TransactionTemplate transactionTemplate;
+    private final StatsMetrics metrics;
 
     @Override
     public void saveHit(EndpointHitDto event) {
-        EndpointHit endpointHit = StatsMapper.toEndpointHit(event);
-        EndpointHit result = repository.save(endpointHit);
-        log.info("Сохранен вызов {}", result);
+        Timer.Sample sample = Timer.start();
+        EndpointHit endpointHit = toEndpointHit(event);
+        if (hitWal.append(endpointHit)) {
+            log.debug("Вызов записан в журнал {}", event);
+        } else if (ingestionQueue.offer(endpointHit)) {
+            log.debug("Вызов поставлен в очередь на запись {}", event);
+        } else {
+            batchWriter.write(List.of(endpointHit));
+            log.debug("Сохранен вызов {}", event);
+        }
+        trendingStore.record(endpointHit);
+        metrics.recordHits(endpointHit.getApp(), 1);
+        metrics.recordIngest("single", sample);
     }
 
     @Override
-    public Collection<ViewStatsDto> getStatistics(LocalDateTime start, LocalDateTime end, Collection<String> uris, Boolean unique) {
-        if (start == null || end == null || start.isAfter(end)) {
+    @Transactional
+    public int saveHits(Iterator<EndpointHitDto> events) {
+        Timer.Sample sample = Timer.start();
+        int batchSize = ingestProperties.getBatchSize();
+        List<EndpointHit> batch = new ArrayList<>(batchSize);
+        int saved = 0;
+        while (events.hasNext()) {
+            batch.add(toEndpointHit(events.next()));
+            if (batch.size() == batchSize) {
+                saved += writeBatch(batch);
+            }
+        }
+        saved += writeBatch(batch);
+        metrics.recordIngest("batch", sample);
+        log.info("Сохранено {} вызовов", saved);
+        return saved;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Collection<ViewStatsDto> getStatistics(LocalDateTime start, LocalDateTime end, Collection<String> uris, Boolean unique,
+                                                  Boolean approx) {
+        validateRange(start, end);
+        Timer.Sample sample = Timer.start();
+        Collection<ViewStatsDto> stats = queryCache.get(start, end, uris, unique, approx,
+                () -> findStatistics(start, end, uris, unique, approx));
+        metrics.recordQuery("stats", sample, stats.size());
+        return stats;
+    }
+
+    private Collection<ViewStatsDto> findStatistics(LocalDateTime start, LocalDateTime end, Collection<String> uris,
+                                                    Boolean unique, Boolean approx) {
+        Optional<Collection<ViewStats>> inMemory = counterStore.find(start, end, uris, unique);
+        if (inMemory.isPresent()) {
+            return StatsMapper.toViewStatsDtos(inMemory.get());
+        }
+        List<Integer> uriIds = uriIds(uris);
+        if (uriIds == null) {
+            return List.of();
+        }
+        if (!Boolean.TRUE.equals(unique)) {
+            return StatsMapper.toViewStatsDtos(rollupRepository.findStats(start, end, uriIds));
+        }
+        if (Boolean.TRUE.equals(approx)) {
+            return StatsMapper.toViewStatsDtos(sketchRepository.findUniqueStats(start, end, uriIds));
+        }
+        if (uriIds.isEmpty()) {
+            return StatsMapper.toViewStatsDtos(repository.findAllStats(start, end, unique));
+        }
+        return StatsMapper.toViewStatsDtos(repository.findStatsForUris(start, end, uriIds, unique));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamStatistics(LocalDateTime start, LocalDateTime end, Collection<String> uris, Boolean unique,
+                                 Boolean approx, Consumer<ViewStatsDto> consumer) {
+        validateRange(start, end);
+        Timer.Sample sample = Timer.start();
+        long[] rows = {0};
+        streamFromSource(start, end, uris, unique, approx, stats -> {
+            rows[0]++;
+            consumer.accept(StatsMapper.toViewStatsDto(stats));
+        });
+        metrics.recordQuery("stream", sample, rows[0]);
+    }
+
+    private void streamFromSource(LocalDateTime start, LocalDateTime end, Collection<String> uris, Boolean unique,
+                                  Boolean approx, Consumer<ViewStats> consumer) {
+        Optional<Collection<ViewStats>> inMemory = counterStore.find(start, end, uris, unique);
+        if (inMemory.isPresent()) {
+            inMemory.get().forEach(consumer);
+            return;
+        }
+        List<Integer> uriIds = uriIds(uris);
+        if (uriIds == null) {
+            return;
+        }
+        if (!Boolean.TRUE.equals(unique)) {
+            rollupRepository.streamStats(start, end, uriIds, consumer);
+            return;
+        }
+        if (Boolean.TRUE.equals(approx)) {
+            sketchRepository.findUniqueStats(start, end, uriIds).forEach(consumer);
+            return;
+        }
+        try (Stream<ViewStats> stats = uriIds.isEmpty()
+                ? repository.streamAllUniqueStats(start, end)
+                : repository.streamUniqueStatsForUris(start, end, uriIds)) {
+            stats.forEach(consumer);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Collection<TimeSeriesPointDto> getTimeSeries(LocalDateTime start, LocalDateTime end, Collection<String> uris,
+                                                        String bucket) {
+        validateRange(start, end);
+        TimeBucket timeBucket = TimeBucket.from(bucket)
+                .orElseThrow(() -> new BadRequestException("Некорректный интервал: " + bucket));
+        Timer.Sample sample = Timer.start();
+        List<Integer> uriIds = uriIds(uris);
+        List<TimeSeriesPointDto> points = uriIds == null ? List.of()
+                : StatsMapper.toTimeSeriesPointDtos(rollupRepository.findTimeSeries(start, end, uriIds, timeBucket));
+        metrics.recordQuery("timeseries", sample, points.size());
+        return points;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportHits(LocalDateTime start, LocalDateTime end, HitFileFormat format, OutputStream out) {
+        validateRange(start, end);
+        Timer.Sample sample = Timer.start();
+        long exported = exportRepository.export(start, end, format, out);
+        metrics.recordQuery("export", sample, exported);
+        log.info("Выгружено {} вызовов в формате {}", exported, format);
+        return exported;
+    }
+
+    @Override
+    public HitImportResultDto importHits(HitFileFormat format, InputStream in) {
+        Timer.Sample sample = Timer.start();
+        long started = System.nanoTime();
+        String staging = importRepository.createStaging();
+        try {
+            long imported = 0;
+            if (copyIn(staging, format, in) > 0) {
+                String hits = importRepository.resolveIds(staging);
+                partitionManager.createPartitionsFor(hits);
+                Integer inserted = transactionTemplate.execute(status -> {
+                    int rows = importRepository.insertHits(hits);
+                    rollupRepository.addFrom(hits);
+                    sketchRepository.addFrom(hits);
+                    return rows;
+                });
+                imported = inserted == null ? 0 : inserted;
+                refreshInMemory(staging, hits);
+                importRepository.countByApp(staging).forEach(metrics::recordHits);
+            }
+            metrics.recordIngest("import", sample);
+            long millis = Math.max((System.nanoTime() - started) / 1_000_000, 1);
+            long rowsPerSecond = imported * 1000 / millis;
+            log.info("Импортировано {} вызовов в формате {} за {} мс ({} вызовов/с)", imported, format, millis,
+                    rowsPerSecond);
+            return new HitImportResultDto(imported, millis, rowsPerSecond);
+        } finally {
+            importRepository.dropStaging(staging);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Collection<ViewStatsDto> getTop(LocalDateTime start, LocalDateTime end, int limit, boolean exact) {
+        validateRange(start, end);
+        if (limit <= 0) {
             throw new BadRequestException("Некорректные входные данные");
         }
+        Timer.Sample sample = Timer.start();
+        Optional<List<ViewStats>> top = exact ? Optional.empty() : trendingStore.findTop(start, end, limit);
+        List<ViewStatsDto> stats = top.isPresent() ? StatsMapper.toViewStatsDtos(top.get())
+                : getStatistics(start, end, null, false, false).stream()
+                        .limit(limit)
+                        .toList();
+        metrics.recordQuery("top", sample, stats.size());
+        return stats;
+    }
+
+    private EndpointHit toEndpointHit(EndpointHitDto event) {
+        try {
+            IpAddressMapper.toKey(event.getIp());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+        return StatsMapper.toEndpointHit(event);
+    }
+
+    private long copyIn(String staging, HitFileFormat format, InputStream in) {
+        try {
+            return importRepository.copyIn(staging, format, in);
+        } catch (DataAccessException e) {
+            if (e.getMostSpecificCause() instanceof SQLException cause && cause.getSQLState() != null
+                    && (cause.getSQLState().startsWith("22") || cause.getSQLState().startsWith("23"))) {
+                throw new BadRequestException("Некорректные входные данные: " + cause.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    private void refreshInMemory(String staging, String hits) {
+        counterStore.invalidate();
+        try {
+            trendingStore.recordFrom(hits);
+        } catch (RuntimeException e) {
+            log.error("Не удалось обновить сводки популярных uri после импорта", e);
+        }
+        queryCache.onIngestedUris(importRepository.findUris(staging));
+    }
+
+    private List<Integer> uriIds(Collection<String> uris) {
         if (uris == null || uris.isEmpty()) {
-            return StatsMapper.toViewStatsDtos(repository.findAllStats(start, end, unique));
+            return List.of();
         }
-        return StatsMapper.toViewStatsDtos(repository.findStatsForUris(start, end, uris, unique));
+        List<Integer> uriIds = dictionary.findUriIds(uris);
+        return uriIds.isEmpty() ? null : uriIds;
+    }
+
+    private void validateRange(LocalDateTime start, LocalDateTime end) {
+        if (start == null || end == null || start.isAfter(end)) {
+            throw new BadRequestException("Некорректные входные данные");
+        }
+    }
+
+    private int writeBatch(List<EndpointHit> batch) {
+        batchWriter.write(batch);
+        batch.forEach(trendingStore::record);
+        batch.forEach(hit -> metrics.recordHits(hit.getApp(), 1));
+        int written = batch.size();
+        batch.clear();
+        return written;
     }
 }
@@ -0,0 +1,112 @@
+package ru.practicum.stats.server.sketch;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HyperLogLog с 2^12 регистрами: стандартная ошибка оценки 1.04 / sqrt(4096) ≈ 1.6%,
+ * примерно в 95% случаев ошибка не превышает 3.3%.
+ * Разреженные скетчи сериализуются парами (регистр, значение), поэтому редко посещаемые uri
+ * занимают в базе несколько байт, а не 4 КБ.
+ */
+public class HyperLogLog {
+    public static final int PRECISION = 12;
+    private static final int REGISTER_COUNT = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTER_COUNT);
+    private static final byte DENSE = 0;
+    private static final byte SPARSE = 1;
+    private static final int SPARSE_ENTRY_SIZE = 3;
+
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this.registers = new byte[REGISTER_COUNT];
+    }
+
+    public void add(long value) {
+        addHash(mix(value));
+    }
+
+    public void addHash(long hash) {
+        int index = (int) (hash >>> (Long.SIZE - PRECISION));
+        long remaining = (hash << PRECISION) | (1L << (PRECISION - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+        if (registers[index] < rank) {
+            registers[index] = rank;
+        }
+    }
+
+    public void merge(HyperLogLog other) {
+        for (int i = 0; i < REGISTER_COUNT; i++) {
+            if (registers[i] < other.registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = ALPHA * REGISTER_COUNT * REGISTER_COUNT / sum;
+        if (estimate <= 2.5 * REGISTER_COUNT && zeros > 0) {
+            estimate = REGISTER_COUNT * Math.log((double) REGISTER_COUNT / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public byte[] toBytes() {
+        int nonZero = 0;
+        for (byte register : registers) {
+            if (register != 0) {
+                nonZero++;
+            }
+        }
+        if (nonZero * SPARSE_ENTRY_SIZE >= REGISTER_COUNT) {
+            return ByteBuffer.allocate(1 + REGISTER_COUNT).put(DENSE).put(registers).array();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(1 + nonZero * SPARSE_ENTRY_SIZE).put(SPARSE);
+        for (int i = 0; i < REGISTER_COUNT; i++) {
+            if (registers[i] != 0) {
+                buffer.putShort((short) i).put(registers[i]);
+            }
+        }
+        return buffer.array();
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        HyperLogLog sketch = new HyperLogLog();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.get() == DENSE) {
+            buffer.get(sketch.registers);
+        } else {
+            while (buffer.hasRemaining()) {
+                sketch.registers[buffer.getShort()] = buffer.get();
+            }
+        }
+        return sketch;
+    }
+
+    public static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb93e53d4a51aL;
+        value ^= value >>> 33;
+        return value;
+    }
+}
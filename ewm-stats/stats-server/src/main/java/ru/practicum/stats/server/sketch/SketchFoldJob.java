@@ -0,0 +1,26 @@
+package ru.practicum.stats.server.sketch;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.server.repository.StatsSketchRepository;
+
+/**
+ * Переносит новые вызовы в суточные HLL-скетчи. Запись вызова скетчи не трогает, поэтому приблизительные
+ * ответы отстают от записанных вызовов не больше чем на stats.sketch.fold-interval.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SketchFoldJob {
+    private final StatsSketchRepository sketchRepository;
+
+    @Scheduled(fixedDelayString = "${stats.sketch.fold-interval:PT1M}")
+    public void fold() {
+        long folded = sketchRepository.foldNewHits();
+        if (folded > 0) {
+            log.debug("В скетчи уникальных посещений добавлено {} посетителей", folded);
+        }
+    }
+}
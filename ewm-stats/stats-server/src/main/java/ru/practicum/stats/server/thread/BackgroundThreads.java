@@ -0,0 +1,23 @@
+package ru.practicum.stats.server.thread;
+
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Запускает фоновые потоки сервиса: виртуальные при spring.threads.virtual.enabled=true, иначе
+ * платформенные потоки-демоны.
+ */
+@Component
+public class BackgroundThreads {
+    private final boolean virtual;
+
+    public BackgroundThreads(Environment environment) {
+        this.virtual = Threading.VIRTUAL.isActive(environment);
+    }
+
+    public Thread start(String name, Runnable task) {
+        Thread.Builder builder = virtual ? Thread.ofVirtual() : Thread.ofPlatform().daemon();
+        return builder.name(name).start(task);
+    }
+}
@@ -0,0 +1,58 @@
+package ru.practicum.stats.server.trending;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Сводка Space-Saving: хранит не более {@code capacity} счетчиков и для любого ключа с частотой
+ * больше N / capacity гарантированно содержит его оценку, завышенную не более чем на N / capacity.
+ * Экземпляр не потокобезопасен.
+ */
+public class SpaceSaving<K> {
+    private final int capacity;
+    private final Map<K, Counter<K>> counters = new HashMap<>();
+    private final TreeSet<Counter<K>> order = new TreeSet<>(Comparator.<Counter<K>>comparingLong(c -> c.count)
+            .thenComparingLong(c -> c.sequence));
+    private long sequence;
+
+    public SpaceSaving(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public void offer(K key, long increment) {
+        Counter<K> counter = counters.get(key);
+        if (counter != null) {
+            order.remove(counter);
+            counter.count += increment;
+            order.add(counter);
+            return;
+        }
+        long base = 0;
+        if (counters.size() >= capacity) {
+            Counter<K> evicted = order.pollFirst();
+            counters.remove(evicted.key);
+            base = evicted.count;
+        }
+        counter = new Counter<>(key, base + increment, sequence++);
+        counters.put(key, counter);
+        order.add(counter);
+    }
+
+    public void addTo(Map<K, Long> totals) {
+        counters.forEach((key, counter) -> totals.merge(key, counter.count, Long::sum));
+    }
+
+    private static class Counter<K> {
+        private final K key;
+        private final long sequence;
+        private long count;
+
+        Counter(K key, long count, long sequence) {
+            this.key = key;
+            this.count = count;
+            this.sequence = sequence;
+        }
+    }
+}
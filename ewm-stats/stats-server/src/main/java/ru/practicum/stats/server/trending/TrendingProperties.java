@@ -0,0 +1,18 @@
+package ru.practicum.stats.server.trending;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.trending")
+public class TrendingProperties {
+    private boolean enabled = false;
+    private Duration bucket = Duration.ofMinutes(5);
+    private Duration retention = Duration.ofDays(1);
+    private int capacity = 1000;
+    private Duration maxClockSkew = Duration.ofMinutes(1);
+}
@@ -0,0 +1,179 @@
+package ru.practicum.stats.server.trending;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.server.dictionary.StatsDictionary;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.model.ViewStats;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TrendingStore {
+    private static final int WARM_UP_FETCH_SIZE = 10_000;
+
+    private final TrendingProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final StatsDictionary dictionary;
+    private final ConcurrentNavigableMap<LocalDateTime, Bucket> buckets = new ConcurrentSkipListMap<>();
+    private volatile boolean ready;
+
+    @PostConstruct
+    public void warmUp() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        load("public.stats");
+        ready = true;
+        log.info("Сводки популярных uri восстановлены: {} интервалов", buckets.size());
+    }
+
+    public void recordFrom(String relation) {
+        if (!ready) {
+            return;
+        }
+        load(relation);
+    }
+
+    public void record(EndpointHit hit) {
+        if (!ready) {
+            return;
+        }
+        LocalDateTime bucketStart = bucketStart(hit.getCreated());
+        LocalDateTime cutoff = cutoff();
+        if (bucketStart.isBefore(cutoff) || hit.getCreated().isAfter(horizon())) {
+            return;
+        }
+        Bucket bucket = buckets.get(bucketStart);
+        if (bucket == null) {
+            bucket = bucket(bucketStart);
+            buckets.headMap(cutoff).clear();
+        }
+        bucket.offer(new Endpoint(hit.getApp(), hit.getUri()), 1);
+    }
+
+    public Optional<List<ViewStats>> findTop(LocalDateTime start, LocalDateTime end, int limit) {
+        if (!ready || start.isBefore(cutoff())) {
+            return Optional.empty();
+        }
+        LocalDateTime from = bucketStart(start);
+        if (from.isBefore(start)) {
+            from = from.plus(properties.getBucket());
+        }
+        LocalDateTime to = bucketStart(end);
+        LocalDateTime current = bucketStart(LocalDateTime.now());
+        if (to.isAfter(current)) {
+            to = current;
+        }
+        Map<Endpoint, Long> totals = new HashMap<>();
+        if (from.isBefore(to)) {
+            buckets.subMap(from, true, to, false).values().forEach(bucket -> bucket.addTo(totals));
+            addExact(start, from, to, end, totals);
+        } else {
+            addExact(start, end, end, end, totals);
+        }
+        return Optional.of(totals.entrySet().stream()
+                .sorted(Map.Entry.<Endpoint, Long>comparingByValue().reversed())
+                .limit(limit)
+                .map(e -> new ViewStats(e.getKey().app(), e.getKey().uri(), e.getValue()))
+                .toList());
+    }
+
+    private void addExact(LocalDateTime headStart, LocalDateTime headEnd, LocalDateTime tailStart,
+                          LocalDateTime tailEnd, Map<Endpoint, Long> totals) {
+        jdbcTemplate.query("SELECT app_id, uri_id, COUNT(*) AS hits FROM public.stats " +
+                        "WHERE (created >= ? AND created < ?) OR (created >= ? AND created <= ?) GROUP BY app_id, uri_id",
+                rs -> {
+                    Endpoint endpoint = new Endpoint(dictionary.app(rs.getInt("app_id")),
+                            dictionary.uri(rs.getInt("uri_id")));
+                    totals.merge(endpoint, rs.getLong("hits"), Long::sum);
+                },
+                Timestamp.valueOf(headStart), Timestamp.valueOf(headEnd), Timestamp.valueOf(tailStart),
+                Timestamp.valueOf(tailEnd));
+    }
+
+    private void load(String relation) {
+        long bucketSeconds = properties.getBucket().toSeconds();
+        LocalDateTime cutoff = cutoff();
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT app_id, uri_id, " +
+                    "floor(extract(epoch FROM created) / ?)::bigint AS bucket, COUNT(*) AS hits " +
+                    "FROM " + relation + " WHERE created >= ? AND created <= ? GROUP BY app_id, uri_id, 3");
+            ps.setLong(1, bucketSeconds);
+            ps.setTimestamp(2, Timestamp.valueOf(cutoff));
+            ps.setTimestamp(3, Timestamp.valueOf(horizon()));
+            ps.setFetchSize(WARM_UP_FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            LocalDateTime bucketStart = LocalDateTime.ofEpochSecond(rs.getLong("bucket") * bucketSeconds, 0,
+                    ZoneOffset.UTC);
+            Endpoint endpoint = new Endpoint(dictionary.app(rs.getInt("app_id")), dictionary.uri(rs.getInt("uri_id")));
+            bucket(bucketStart).offer(endpoint, rs.getLong("hits"));
+        }));
+    }
+
+    private Bucket bucket(LocalDateTime bucketStart) {
+        return buckets.computeIfAbsent(bucketStart, k -> new Bucket(properties.getCapacity()));
+    }
+
+    private LocalDateTime cutoff() {
+        return bucketStart(LocalDateTime.now().minus(properties.getRetention()));
+    }
+
+    private LocalDateTime horizon() {
+        return LocalDateTime.now().plus(properties.getMaxClockSkew());
+    }
+
+    private LocalDateTime bucketStart(LocalDateTime created) {
+        long bucketSeconds = properties.getBucket().toSeconds();
+        long seconds = created.toEpochSecond(ZoneOffset.UTC);
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(seconds, bucketSeconds) * bucketSeconds, 0, ZoneOffset.UTC);
+    }
+
+    private record Endpoint(String app, String uri) {
+    }
+
+    private static class Bucket {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final SpaceSaving<Endpoint> summary;
+
+        Bucket(int capacity) {
+            summary = new SpaceSaving<>(capacity);
+        }
+
+        void offer(Endpoint endpoint, long hits) {
+            lock.lock();
+            try {
+                summary.offer(endpoint, hits);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void addTo(Map<Endpoint, Long> totals) {
+            lock.lock();
+            try {
+                summary.addTo(totals);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
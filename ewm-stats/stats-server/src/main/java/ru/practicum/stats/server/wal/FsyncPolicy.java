@@ -0,0 +1,7 @@
+package ru.practicum.stats.server.wal;
+
+public enum FsyncPolicy {
+    ALWAYS,
+    INTERVAL,
+    NONE
+}
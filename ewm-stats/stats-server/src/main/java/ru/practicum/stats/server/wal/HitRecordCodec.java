@@ -0,0 +1,55 @@
+package ru.practicum.stats.server.wal;
+
+import lombok.experimental.UtilityClass;
+import ru.practicum.stats.server.model.EndpointHit;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+@UtilityClass
+class HitRecordCodec {
+    static byte[] encode(EndpointHit hit) {
+        byte[] app = hit.getApp().getBytes(StandardCharsets.UTF_8);
+        byte[] uri = hit.getUri().getBytes(StandardCharsets.UTF_8);
+        byte[] ip = hit.getIp().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(3 * Integer.BYTES + app.length + uri.length + ip.length +
+                Long.BYTES + Integer.BYTES);
+        putBytes(buffer, app);
+        putBytes(buffer, uri);
+        putBytes(buffer, ip);
+        buffer.putLong(hit.getCreated().toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(hit.getCreated().getNano());
+        return buffer.array();
+    }
+
+    static EndpointHit decode(byte[] payload) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(payload);
+            String app = getString(buffer);
+            String uri = getString(buffer);
+            String ip = getString(buffer);
+            LocalDateTime created = LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+            return EndpointHit.builder()
+                    .app(app)
+                    .uri(uri)
+                    .ip(ip)
+                    .created(created)
+                    .build();
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Поврежденная запись журнала вызовов длиной " + payload.length, e);
+        }
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] value) {
+        buffer.putInt(value.length);
+        buffer.put(value);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] value = new byte[buffer.getInt()];
+        buffer.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,426 @@
+package ru.practicum.stats.server.wal;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.server.ingest.HitBatchWriter;
+import ru.practicum.stats.server.ingest.HitIngestProperties;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.repository.WalCheckpointRepository;
+import ru.practicum.stats.server.thread.BackgroundThreads;
+import ru.practicum.stats.server.trending.TrendingStore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.stream.Stream;
+
+@Slf4j
+@Component
+public class HitWal implements SmartLifecycle {
+    private static final String INSTANCE_ID_FILE = "instance-id";
+    private static final String LEGACY_INSTANCE_ID = "default";
+
+    private final HitWalProperties properties;
+    private final HitIngestProperties ingestProperties;
+    private final HitBatchWriter batchWriter;
+    private final WalCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TrendingStore trendingStore;
+    private final BackgroundThreads threads;
+    private final ConcurrentNavigableMap<Long, WalSegment> segments = new ConcurrentSkipListMap<>();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Counter overflowCounter;
+    private final Counter replayedCounter;
+    private final Counter deadLetterCounter;
+    private final WalDeadLetterLog deadLetters;
+    private volatile WalSegment active;
+    private volatile boolean dirty;
+    private volatile boolean running;
+    private volatile boolean halted;
+    private volatile WalPosition replayed;
+    private String instanceId;
+    private long sessionStart;
+    private Thread replayThread;
+    private Thread syncThread;
+
+    public HitWal(HitWalProperties properties, HitIngestProperties ingestProperties, HitBatchWriter batchWriter,
+                  WalCheckpointRepository checkpointRepository, TransactionTemplate transactionTemplate,
+                  TrendingStore trendingStore, BackgroundThreads threads, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.ingestProperties = ingestProperties;
+        this.batchWriter = batchWriter;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.trendingStore = trendingStore;
+        this.threads = threads;
+        this.overflowCounter = Counter.builder("stats.wal.overflow")
+                .description("Количество вызовов, записанных синхронно из-за переполнения журнала")
+                .register(meterRegistry);
+        this.replayedCounter = Counter.builder("stats.wal.replayed")
+                .description("Количество вызовов, перенесенных из журнала в базу")
+                .register(meterRegistry);
+        this.deadLetterCounter = Counter.builder("stats.wal.dead-lettered")
+                .description("Количество вызовов из журнала, отклоненных базой и перенесенных в сегменты отклоненных")
+                .register(meterRegistry);
+        this.deadLetters = new WalDeadLetterLog(properties.getDirectory().resolve("dead-letter"),
+                (int) properties.getDeadLetterSegmentSize().toBytes());
+        Gauge.builder("stats.wal.segments", segments, Map::size)
+                .description("Количество сегментов журнала на диске")
+                .register(meterRegistry);
+        Gauge.builder("stats.wal.backlog", this, HitWal::backlog)
+                .description("Объем записей журнала, еще не перенесенных в базу")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public boolean append(EndpointHit hit) {
+        if (!running) {
+            return false;
+        }
+        byte[] payload = HitRecordCodec.encode(hit);
+        appendLock.lock();
+        try {
+            if (!running) {
+                return false;
+            }
+            if (!active.append(payload)) {
+                if (segments.size() >= properties.getMaxSegments()) {
+                    overflowCounter.increment();
+                    return false;
+                }
+                roll();
+                if (!active.append(payload)) {
+                    return false;
+                }
+            }
+            if (properties.getFsync() == FsyncPolicy.ALWAYS) {
+                active.force();
+            } else {
+                dirty = true;
+            }
+            return true;
+        } catch (IOException e) {
+            log.error("Не удалось создать сегмент журнала вызовов", e);
+            return false;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        WalPosition checkpoint;
+        try {
+            checkpoint = recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть журнал вызовов " + properties.getDirectory(), e);
+        }
+        running = true;
+        halted = false;
+        replayed = checkpoint;
+        replayThread = threads.start("stats-wal-replayer", () -> replayLoop(checkpoint));
+        if (properties.getFsync() == FsyncPolicy.INTERVAL) {
+            syncThread = threads.start("stats-wal-sync", this::syncLoop);
+        }
+        log.info("Журнал вызовов запущен: directory={}, fsync={}, сегментов к загрузке {}",
+                properties.getDirectory(), properties.getFsync(), segments.size() - 1);
+    }
+
+    @Override
+    public void stop() {
+        if (replayThread == null) {
+            return;
+        }
+        appendLock.lock();
+        try {
+            running = false;
+            active.force();
+        } finally {
+            appendLock.unlock();
+        }
+        boolean stopped = join(syncThread) & join(replayThread);
+        if (!stopped) {
+            log.warn("Журнал не загружен в базу за {}, загрузка прервана", ingestProperties.getShutdownTimeout());
+            halted = true;
+            stopped = join(syncThread) & join(replayThread);
+        }
+        if (!stopped) {
+            log.error("Потоки журнала не остановились, сегменты журнала оставлены открытыми");
+            return;
+        }
+        boolean pending = segments.size() > 1 || replayed.segment() != active.getSequence()
+                || replayed.offset() < active.position();
+        for (WalSegment segment : segments.values()) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                log.warn("Не удалось закрыть сегмент журнала {}", segment.getSequence(), e);
+            }
+        }
+        try {
+            deadLetters.close();
+        } catch (IOException e) {
+            log.warn("Не удалось закрыть сегмент отклоненных вызовов", e);
+        }
+        if (pending) {
+            log.warn("В журнале остались незагруженные вызовы, они будут загружены при следующем запуске");
+        }
+        replayThread = null;
+        syncThread = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE - 4096;
+    }
+
+    private WalPosition recover() throws IOException {
+        Path directory = properties.getDirectory();
+        Files.createDirectories(directory);
+        instanceId = resolveInstanceId(directory);
+        WalPosition checkpoint = checkpointRepository.find(instanceId)
+                .orElse(new WalPosition(0, 0));
+        long last = checkpoint.segment();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : files.toList()) {
+                Matcher matcher = WalSegment.FILE_NAME.matcher(path.getFileName().toString());
+                if (!matcher.matches()) {
+                    continue;
+                }
+                long sequence = Long.parseLong(matcher.group(1));
+                last = Math.max(last, sequence);
+                if (sequence < checkpoint.segment()) {
+                    Files.delete(path);
+                } else {
+                    segments.put(sequence, WalSegment.open(path, sequence));
+                }
+            }
+        }
+        sessionStart = last + 1;
+        active = WalSegment.create(directory, sessionStart, (int) properties.getSegmentSize().toBytes());
+        segments.put(sessionStart, active);
+        return checkpoint;
+    }
+
+    private String resolveInstanceId(Path directory) throws IOException {
+        if (properties.getInstanceId() != null && !properties.getInstanceId().isBlank()) {
+            return properties.getInstanceId();
+        }
+        Path file = directory.resolve(INSTANCE_ID_FILE);
+        if (Files.exists(file)) {
+            return Files.readString(file).trim();
+        }
+        boolean legacy;
+        try (Stream<Path> files = Files.list(directory)) {
+            legacy = files.anyMatch(path -> WalSegment.FILE_NAME.matcher(path.getFileName().toString()).matches());
+        }
+        // сегменты без файла идентификатора записаны версией, где все экземпляры были "default"
+        String id = legacy ? LEGACY_INSTANCE_ID : UUID.randomUUID().toString();
+        Path temporary = directory.resolve(INSTANCE_ID_FILE + ".tmp");
+        Files.writeString(temporary, id);
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Журналу вызовов {} назначен идентификатор {}", directory, id);
+        return id;
+    }
+
+    private void roll() throws IOException {
+        active.force();
+        WalSegment next = WalSegment.create(properties.getDirectory(), active.getSequence() + 1,
+                (int) properties.getSegmentSize().toBytes());
+        segments.put(next.getSequence(), next);
+        active = next;
+    }
+
+    private void replayLoop(WalPosition checkpoint) {
+        List<byte[]> payloads = new ArrayList<>(ingestProperties.getBatchSize());
+        long sequence = checkpoint.segment();
+        int offset = checkpoint.offset();
+        while (!halted) {
+            WalSegment segment = segments.get(sequence);
+            if (segment == null) {
+                sequence = segments.ceilingKey(sequence);
+                offset = 0;
+                continue;
+            }
+            boolean sealed = segment != active;
+            int limit = sealed ? segment.capacity() : segment.position();
+            int next = segment.read(offset, limit, ingestProperties.getBatchSize(), payloads::add);
+            if (!payloads.isEmpty()) {
+                int reached = replay(sequence, offset, next, payloads);
+                payloads.clear();
+                if (reached != offset) {
+                    offset = reached;
+                    replayed = new WalPosition(sequence, offset);
+                } else if (!running) {
+                    return;
+                } else {
+                    pause();
+                }
+                continue;
+            }
+            if (next != offset) {
+                offset = next;
+                replayed = new WalPosition(sequence, offset);
+                continue;
+            }
+            if (sealed) {
+                segments.remove(sequence);
+                delete(segment);
+                sequence = segments.ceilingKey(sequence);
+                offset = 0;
+                replayed = new WalPosition(sequence, offset);
+                continue;
+            }
+            if (!running) {
+                return;
+            }
+            pause();
+        }
+    }
+
+    private int replay(long sequence, int offset, int next, List<byte[]> payloads) {
+        try {
+            commit(sequence, payloads.stream().map(HitRecordCodec::decode).toList(), new WalPosition(sequence, next));
+            return next;
+        } catch (RuntimeException e) {
+            if (HitBatchWriter.isTransient(e)) {
+                log.error("Не удалось загрузить пачку из {} вызовов из журнала, повтор", payloads.size(), e);
+                return offset;
+            }
+            log.warn("База отклонила пачку из {} вызовов из журнала, загрузка по одному", payloads.size(), e);
+        }
+        int position = offset;
+        for (byte[] payload : payloads) {
+            WalPosition after = new WalPosition(sequence, position + WalSegment.recordSize(payload));
+            try {
+                commit(sequence, List.of(HitRecordCodec.decode(payload)), after);
+            } catch (RuntimeException e) {
+                if (!HitBatchWriter.isDataError(e)) {
+                    log.error("Не удалось загрузить вызов из журнала, повтор", e);
+                    return position;
+                }
+                if (!deadLetter(payload, e) || !skip(after)) {
+                    return position;
+                }
+            }
+            position = after.offset();
+        }
+        return position;
+    }
+
+    private void commit(long sequence, List<EndpointHit> batch, WalPosition position) {
+        transactionTemplate.executeWithoutResult(status -> {
+            batchWriter.write(batch);
+            checkpointRepository.save(instanceId, position);
+        });
+        replayedCounter.increment(batch.size());
+        if (sequence < sessionStart) {
+            batch.forEach(trendingStore::record);
+        }
+        log.debug("Из журнала загружено {} вызовов", batch.size());
+    }
+
+    private boolean deadLetter(byte[] payload, RuntimeException cause) {
+        String hit;
+        try {
+            hit = HitRecordCodec.decode(payload).toString();
+        } catch (RuntimeException e) {
+            hit = "<" + payload.length + " байт>";
+        }
+        try {
+            Path path = deadLetters.append(payload);
+            deadLetterCounter.increment();
+            log.error("Вызов {} из журнала отклонен базой и перенесен в {}: {}", hit, path, cause.getMessage());
+            return true;
+        } catch (IOException e) {
+            log.error("Не удалось перенести отклоненный вызов {} из журнала, повтор", hit, e);
+            return false;
+        }
+    }
+
+    private boolean skip(WalPosition position) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    checkpointRepository.save(instanceId, position));
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Не удалось сохранить позицию журнала после отклоненного вызова, повтор", e);
+            return false;
+        }
+    }
+
+    private double backlog() {
+        WalPosition position = replayed;
+        if (position == null) {
+            return 0;
+        }
+        long pending = 0;
+        for (WalSegment segment : segments.values()) {
+            if (segment.getSequence() < position.segment()) {
+                continue;
+            }
+            int end = segment == active ? segment.position() : segment.capacity();
+            pending += end - (segment.getSequence() == position.segment() ? position.offset() : 0);
+        }
+        return pending;
+    }
+
+    private void syncLoop() {
+        while (running) {
+            LockSupport.parkNanos(properties.getFsyncInterval().toNanos());
+            if (dirty) {
+                dirty = false;
+                active.force();
+            }
+        }
+    }
+
+    private void delete(WalSegment segment) {
+        try {
+            segment.delete();
+            log.debug("Удален загруженный сегмент журнала {}", segment.getSequence());
+        } catch (IOException e) {
+            log.warn("Не удалось удалить сегмент журнала {}", segment.getSequence(), e);
+        }
+    }
+
+    private void pause() {
+        LockSupport.parkNanos(ingestProperties.getFlushInterval().toNanos());
+    }
+
+    private boolean join(Thread thread) {
+        if (thread == null) {
+            return true;
+        }
+        try {
+            thread.join(ingestProperties.getShutdownTimeout().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return !thread.isAlive();
+    }
+}
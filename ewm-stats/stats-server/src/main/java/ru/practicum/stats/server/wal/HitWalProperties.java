@@ -0,0 +1,23 @@
+package ru.practicum.stats.server.wal;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.wal")
+public class HitWalProperties {
+    private boolean enabled = false;
+    private Path directory = Path.of("wal");
+    private String instanceId;
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+    private int maxSegments = 64;
+    private DataSize deadLetterSegmentSize = DataSize.ofMegabytes(1);
+    private FsyncPolicy fsync = FsyncPolicy.INTERVAL;
+    private Duration fsyncInterval = Duration.ofMillis(100);
+}
@@ -0,0 +1,56 @@
+package ru.practicum.stats.server.wal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.stream.Stream;
+
+/**
+ * Сегменты журнала с записями, которые база отклонила. Формат совпадает с основным журналом,
+ * поэтому записи можно загрузить повторно после исправления причины отказа.
+ */
+class WalDeadLetterLog {
+    private final Path directory;
+    private final int segmentSize;
+    private WalSegment segment;
+
+    WalDeadLetterLog(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    Path append(byte[] payload) throws IOException {
+        if (segment == null || !segment.append(payload)) {
+            roll();
+            if (!segment.append(payload)) {
+                throw new IOException("Запись размером " + payload.length + " байт не помещается в сегмент " +
+                        "отклоненных вызовов");
+            }
+        }
+        segment.force();
+        return directory.resolve(WalSegment.fileName(segment.getSequence()));
+    }
+
+    void close() throws IOException {
+        if (segment != null) {
+            segment.close();
+            segment = null;
+        }
+    }
+
+    private void roll() throws IOException {
+        Files.createDirectories(directory);
+        long last = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : files.toList()) {
+                Matcher matcher = WalSegment.FILE_NAME.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    last = Math.max(last, Long.parseLong(matcher.group(1)));
+                }
+            }
+        }
+        close();
+        segment = WalSegment.create(directory, last + 1, segmentSize);
+    }
+}
@@ -0,0 +1,138 @@
+package ru.practicum.stats.server.wal;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Сегмент журнала вызовов, отображенный в память. Запись: длина (int), CRC32 (int), данные.
+ * Файл создается сразу полного размера, поэтому нулевая длина, за которой нет ни одной целой записи,
+ * означает конец записанных данных. Поврежденные записи пропускаются до следующей записи с верной
+ * контрольной суммой: чтение возвращает записи до повреждения либо, если их нет, позицию после пропуска.
+ */
+@Slf4j
+class WalSegment {
+    static final Pattern FILE_NAME = Pattern.compile("(\\d{20})\\.wal");
+    private static final int HEADER_SIZE = 8;
+
+    @Getter
+    private final long sequence;
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private volatile int position;
+
+    private WalSegment(long sequence, Path path, FileChannel channel, int size) throws IOException {
+        this.sequence = sequence;
+        this.path = path;
+        this.channel = channel;
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    static WalSegment create(Path directory, long sequence, int size) throws IOException {
+        Path path = directory.resolve(fileName(sequence));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        return new WalSegment(sequence, path, channel, size);
+    }
+
+    static WalSegment open(Path path, long sequence) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new WalSegment(sequence, path, channel, (int) channel.size());
+    }
+
+    static int recordSize(byte[] payload) {
+        return HEADER_SIZE + payload.length;
+    }
+
+    static String fileName(long sequence) {
+        return String.format("%020d.wal", sequence);
+    }
+
+    boolean append(byte[] payload) {
+        int offset = position;
+        if (offset + HEADER_SIZE + payload.length > buffer.capacity()) {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        buffer.put(offset + HEADER_SIZE, payload);
+        buffer.putInt(offset + 4, (int) crc.getValue());
+        buffer.putInt(offset, payload.length);
+        position = offset + HEADER_SIZE + payload.length;
+        return true;
+    }
+
+    int read(int offset, int limit, int maxRecords, Consumer<byte[]> consumer) {
+        int records = 0;
+        while (records < maxRecords && offset + HEADER_SIZE <= limit) {
+            byte[] payload = readValid(offset, limit);
+            if (payload == null) {
+                if (records > 0) {
+                    break;
+                }
+                int next = resync(offset + 1, limit);
+                if (next < limit || buffer.getInt(offset) != 0) {
+                    log.error("Поврежденная запись в сегменте журнала {} на позиции {}, пропущено {} байт до " +
+                            "следующей целой записи", path, offset, next - offset);
+                }
+                return next;
+            }
+            consumer.accept(payload);
+            offset += HEADER_SIZE + payload.length;
+            records++;
+        }
+        return offset;
+    }
+
+    private int resync(int offset, int limit) {
+        for (int candidate = offset; candidate + HEADER_SIZE <= limit; candidate++) {
+            if (readValid(candidate, limit) != null) {
+                return candidate;
+            }
+        }
+        return limit;
+    }
+
+    private byte[] readValid(int offset, int limit) {
+        int length = buffer.getInt(offset);
+        if (length <= 0 || length > limit - offset - HEADER_SIZE) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        buffer.get(offset + HEADER_SIZE, payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue() == buffer.getInt(offset + 4) ? payload : null;
+    }
+
+    int position() {
+        return position;
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void close() throws IOException {
+        channel.close();
+    }
+
+    void delete() throws IOException {
+        channel.close();
+        Files.deleteIfExists(path);
+    }
+}
@@ -1,7 +1,61 @@
+CREATE TABLE IF NOT EXISTS public.stats_app (
+    id SERIAL PRIMARY KEY,
+    name VARCHAR(255) NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS public.stats_uri (
+    id SERIAL PRIMARY KEY,
+    uri VARCHAR(255) NOT NULL UNIQUE
+);
+
+CREATE SEQUENCE IF NOT EXISTS public.stats_hit_id_seq;
+
 CREATE TABLE IF NOT EXISTS public.stats (
-    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
-    app VARCHAR(255) NOT NULL,
-    uri VARCHAR(255) NOT NULL,
-    user_ip VARCHAR(15) NOT NULL,
-    created TIMESTAMP WITHOUT TIME ZONE NOT NULL
-);
\ No newline at end of file
+    id BIGINT NOT NULL DEFAULT nextval('public.stats_hit_id_seq'),
+    app_id INTEGER NOT NULL,
+    uri_id INTEGER NOT NULL,
+    user_ip INET NOT NULL,
+    created TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    PRIMARY KEY (id, created)
+) PARTITION BY RANGE (created);
+
+CREATE INDEX IF NOT EXISTS stats_created_idx ON public.stats (created);
+
+CREATE TABLE IF NOT EXISTS public.stats_rollup_hourly (
+    app_id INTEGER NOT NULL,
+    uri_id INTEGER NOT NULL,
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    hits BIGINT NOT NULL,
+    PRIMARY KEY (app_id, uri_id, bucket)
+);
+
+CREATE TABLE IF NOT EXISTS public.stats_rollup_daily (
+    app_id INTEGER NOT NULL,
+    uri_id INTEGER NOT NULL,
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    hits BIGINT NOT NULL,
+    PRIMARY KEY (app_id, uri_id, bucket)
+);
+
+CREATE TABLE IF NOT EXISTS public.stats_hll_daily (
+    app_id INTEGER NOT NULL,
+    uri_id INTEGER NOT NULL,
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    sketch BYTEA NOT NULL,
+    PRIMARY KEY (app_id, uri_id, bucket)
+);
+
+CREATE TABLE IF NOT EXISTS public.stats_hll_watermark (
+    id BOOLEAN PRIMARY KEY DEFAULT TRUE CHECK (id),
+    last_hit_id BIGINT NOT NULL,
+    pending_hit_id BIGINT,
+    pending_xmax BIGINT
+);
+
+INSERT INTO public.stats_hll_watermark (last_hit_id) VALUES (0) ON CONFLICT (id) DO NOTHING;
+
+CREATE TABLE IF NOT EXISTS public.stats_wal_checkpoint (
+    instance_id VARCHAR(255) PRIMARY KEY,
+    segment BIGINT NOT NULL,
+    position INTEGER NOT NULL
+);
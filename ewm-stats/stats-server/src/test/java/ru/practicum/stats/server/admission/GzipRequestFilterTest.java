@@ -0,0 +1,96 @@
+package ru.practicum.stats.server.admission;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.stats.server.exception.InvalidGzipException;
+import ru.practicum.stats.server.exception.PayloadTooLargeException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GzipRequestFilterTest {
+    private static final String BODY = "{\"app\":\"ewm-main-service\",\"uri\":\"/events/1\"}";
+
+    private final GzipRequestProperties properties = new GzipRequestProperties();
+    private final List<String> bodies = new ArrayList<>();
+    private final List<Integer> contentLengths = new ArrayList<>();
+    private final FilterChain chain = (request, response) -> {
+        bodies.add(StreamUtils.copyToString(request.getInputStream(), StandardCharsets.UTF_8));
+        contentLengths.add(request.getContentLength());
+    };
+    private GzipRequestFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new GzipRequestFilter(properties);
+    }
+
+    @Test
+    void decompressesGzipBody() throws Exception {
+        filter.doFilter(request(gzip(BODY), "gzip"), new MockHttpServletResponse(), chain);
+
+        assertThat(bodies).containsExactly(BODY);
+        assertThat(contentLengths).containsExactly(-1);
+    }
+
+    @Test
+    void passesPlainBodyThrough() throws Exception {
+        byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+
+        filter.doFilter(request(body, null), new MockHttpServletResponse(), chain);
+
+        assertThat(bodies).containsExactly(BODY);
+        assertThat(contentLengths).containsExactly(body.length);
+    }
+
+    @Test
+    void rejectsBodyLargerThanLimitAfterDecompression() throws IOException {
+        properties.setMaxDecompressedSize(DataSize.ofBytes(10));
+
+        assertThatThrownBy(() -> filter.doFilter(request(gzip(BODY), "gzip"), new MockHttpServletResponse(), chain))
+                .isInstanceOf(PayloadTooLargeException.class);
+    }
+
+    @Test
+    void rejectsCorruptGzip() throws IOException {
+        byte[] gzip = gzip(BODY);
+        byte[] truncated = Arrays.copyOf(gzip, gzip.length - 12);
+
+        assertThatThrownBy(() -> filter.doFilter(request(truncated, "gzip"), new MockHttpServletResponse(), chain))
+                .isInstanceOf(InvalidGzipException.class);
+        assertThatThrownBy(() -> filter.doFilter(request(BODY.getBytes(StandardCharsets.UTF_8), "gzip"),
+                new MockHttpServletResponse(), chain))
+                .isInstanceOf(InvalidGzipException.class);
+    }
+
+    private static MockHttpServletRequest request(byte[] body, String encoding) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/hits");
+        request.setContent(body);
+        if (encoding != null) {
+            request.addHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+        }
+        return request;
+    }
+
+    private static byte[] gzip(String body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,127 @@
+package ru.practicum.stats.server.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.practicum.stats.server.ingest.HitIngestProperties;
+import ru.practicum.stats.server.ingest.HitIngestionQueue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HitAdmissionFilterTest {
+    private final HitAdmissionProperties properties = new HitAdmissionProperties();
+    private final HitIngestProperties ingestProperties = new HitIngestProperties();
+    private final HitIngestionQueue ingestionQueue = mock(HitIngestionQueue.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<Thread> blocked = new ArrayList<>();
+    private HitAdmissionFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        properties.setEnabled(true);
+        properties.setMaxInFlight(2);
+        properties.setMaxInFlightDuringReads(1);
+        properties.setMaxQueued(0);
+        filter = new HitAdmissionFilter(properties, ingestProperties, ingestionQueue, registry);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        release.countDown();
+        for (Thread thread : blocked) {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    @Test
+    void rejectsWritesOverConcurrencyLimit() throws Exception {
+        block(post("/hit"));
+        block(post("/hits"));
+
+        MockHttpServletResponse response = filter(post("/hit"));
+
+        assertThat(response.getStatus()).isEqualTo(429);
+        assertThat(response.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(gauge("stats.admission.in-flight")).isEqualTo(2);
+        assertThat(filter(post("/events/import")).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void limitsWritesWhileStatsAreRead() throws Exception {
+        block(get("/stats"));
+        block(post("/hit"));
+
+        assertThat(gauge("stats.admission.reads-in-flight")).isEqualTo(1);
+        assertThat(filter(post("/hit")).getStatus()).isEqualTo(429);
+        assertThat(filter(get("/stats")).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void rejectsWritesWhenIngestionQueueIsBacklogged() throws Exception {
+        ingestProperties.setQueueCapacity(100);
+        when(ingestionQueue.isEnabled()).thenReturn(true);
+        when(ingestionQueue.size()).thenReturn(90);
+
+        MockHttpServletResponse response = filter(post("/hit"));
+
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(registry.get("stats.admission.rejected").tag("reason", "backlog").counter().count())
+                .isEqualTo(1);
+    }
+
+    private MockHttpServletResponse filter(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, (req, res) -> {
+        });
+        return response;
+    }
+
+    private void block(MockHttpServletRequest request) throws InterruptedException {
+        CountDownLatch entered = new CountDownLatch(1);
+        FilterChain chain = (req, res) -> {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        blocked.add(Thread.ofPlatform().start(() -> {
+            try {
+                filter.doFilter(request, new MockHttpServletResponse(), chain);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private double gauge(String name) {
+        return registry.get(name).gauge().value();
+    }
+
+    private static MockHttpServletRequest post(String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        request.setServletPath(path);
+        return request;
+    }
+
+    private static MockHttpServletRequest get(String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setServletPath(path);
+        return request;
+    }
+}
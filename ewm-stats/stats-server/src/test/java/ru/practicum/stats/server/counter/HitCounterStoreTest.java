@@ -0,0 +1,255 @@
+package ru.practicum.stats.server.counter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.groups.Tuple;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.server.dictionary.StatsDictionary;
+import ru.practicum.stats.server.mapper.IpAddressMapper;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.model.ViewStats;
+import ru.practicum.stats.server.partition.ExpiredPartitionsDroppedEvent;
+import ru.practicum.stats.server.thread.BackgroundThreads;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HitCounterStoreTest {
+    private static final LocalDateTime START = LocalDateTime.of(2000, 1, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2100, 1, 1, 0, 0);
+    private static final String APP = "ewm-main-service";
+
+    private final List<EndpointHit> hits = new CopyOnWriteArrayList<>();
+    private final List<EndpointHit> expiredHits = new CopyOnWriteArrayList<>();
+    private final List<String> uris = new CopyOnWriteArrayList<>();
+    private final HotCounterProperties properties = new HotCounterProperties();
+    private HitCounterStore store;
+
+    @BeforeEach
+    void setUp() {
+        properties.setEnabled(true);
+        properties.setMaxExactVisitors(3);
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        doAnswer(invocation -> {
+            query(invocation.getArgument(0), invocation.getArgument(1));
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+        when(jdbcTemplate.queryForObject(eq("SELECT MAX(created) FROM public.stats"), eq(Timestamp.class)))
+                .thenAnswer(invocation -> hits.stream().map(EndpointHit::getCreated).max(Comparator.naturalOrder())
+                        .map(Timestamp::valueOf).orElse(null));
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        StatsDictionary dictionary = mock(StatsDictionary.class);
+        when(dictionary.app(anyInt())).thenReturn(APP);
+        when(dictionary.uri(anyInt())).thenAnswer(invocation -> uris.get(invocation.getArgument(0, Integer.class)));
+        store = new HitCounterStore(properties, jdbcTemplate, new TransactionTemplate(transactionManager), dictionary,
+                new BackgroundThreads(new StandardEnvironment()), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.stop();
+    }
+
+    @Test
+    void answersUniqueQueriesLikeDatabaseAfterReload() throws Exception {
+        save(hit("/events/1", "10.0.0.1"), hit("/events/1", "10.0.0.2"), hit("/events/1", "10.0.0.1"),
+                hit("/events/2", "2001:db8::1"), hit("/events/2", "10.0.0.3"));
+
+        startAndAwaitReady();
+
+        assertThat(tuples(find(null))).containsExactlyInAnyOrderElementsOf(uniqueFromDatabase(null));
+        assertThat(tuples(find(List.of("/events/2")))).containsExactlyInAnyOrderElementsOf(
+                uniqueFromDatabase(List.of("/events/2")));
+
+        List<EndpointHit> recorded = List.of(hit("/events/1", "10.0.0.2"), hit("/events/2", "10.0.0.4"));
+        save(recorded.toArray(EndpointHit[]::new));
+        store.recordOnCommit(recorded);
+
+        assertThat(tuples(find(null))).containsExactlyInAnyOrderElementsOf(uniqueFromDatabase(null));
+    }
+
+    @Test
+    void countsIpv6VisitorsExactly() throws Exception {
+        assertThat(IpAddressMapper.toKey("::")).isEqualTo(IpAddressMapper.toKey("0:0:0:1:9e37:79b9:7f4a:7c15"));
+        save(hit("/events/1", "::"), hit("/events/1", "0:0:0:1:9e37:79b9:7f4a:7c15"),
+                hit("/events/2", "10.0.0.1"), hit("/events/2", "::ffff:10.0.0.1"));
+
+        startAndAwaitReady();
+
+        assertThat(tuples(find(null))).containsExactlyInAnyOrder(tuple(APP, "/events/1", 2L),
+                tuple(APP, "/events/2", 2L));
+    }
+
+    @Test
+    void fallsBackToDatabaseWhenVisitorsExceedThreshold() throws Exception {
+        save(hit("/events/1", "10.0.0.1"), hit("/events/1", "10.0.0.2"), hit("/events/1", "10.0.0.3"),
+                hit("/events/2", "10.0.0.1"));
+        startAndAwaitReady();
+        assertThat(store.find(START, END, List.of("/events/1"), true)).isPresent();
+
+        store.recordOnCommit(List.of(hit("/events/1", "10.0.0.4")));
+
+        assertThat(store.find(START, END, List.of("/events/1"), true)).isEmpty();
+        assertThat(store.find(START, END, null, true)).isEmpty();
+        assertThat(store.find(START, END, List.of("/events/2"), true)).isPresent();
+        assertThat(store.find(START, END, List.of("/events/1"), false)).isPresent();
+    }
+
+    @Test
+    void skipsUrisWhoseHitsWereDroppedByRetention() throws Exception {
+        expiredHits.add(hit("/events/3", "10.0.0.1"));
+        save(hit("/events/1", "10.0.0.1"));
+
+        startAndAwaitReady();
+
+        assertThat(tuples(find(null))).containsExactlyInAnyOrderElementsOf(uniqueFromDatabase(null));
+        assertThat(tuples(store.find(START, END, null, false).orElseThrow()))
+                .contains(tuple(APP, "/events/3", 1L));
+    }
+
+    @Test
+    void rebuildsAfterExpiredPartitionsAreDropped() throws Exception {
+        save(hit("/events/1", "10.0.0.1"), hit("/events/1", "10.0.0.2"));
+        startAndAwaitReady();
+
+        expiredHits.add(hits.remove(0));
+        store.onPartitionsDropped(new ExpiredPartitionsDroppedEvent(END));
+        awaitUnique("/events/1", 1);
+
+        assertThat(tuples(find(null))).containsExactlyInAnyOrderElementsOf(uniqueFromDatabase(null));
+    }
+
+    private void startAndAwaitReady() throws InterruptedException {
+        store.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (store.find(START, END, null, false).isEmpty()) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private void awaitUnique(String uri, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!store.find(START, END, List.of(uri), true)
+                .filter(stats -> stats.size() == 1 && stats.iterator().next().getHits() == expected).isPresent()) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private Collection<ViewStats> find(List<String> filter) {
+        Optional<Collection<ViewStats>> stats = store.find(START, END, filter, true);
+        assertThat(stats).isPresent();
+        return stats.get();
+    }
+
+    // то же, что COUNT(DISTINCT user_ip) по таблице stats
+    private List<Tuple> uniqueFromDatabase(List<String> filter) {
+        Map<String, Set<String>> visitors = new TreeMap<>();
+        hits.stream()
+                .filter(hit -> filter == null || filter.contains(hit.getUri()))
+                .forEach(hit -> visitors.computeIfAbsent(hit.getUri(), k -> new HashSet<>()).add(hit.getIp()));
+        return visitors.entrySet().stream()
+                .map(entry -> tuple(APP, entry.getKey(), (long) entry.getValue().size()))
+                .toList();
+    }
+
+    private static List<Tuple> tuples(Collection<ViewStats> stats) {
+        return stats.stream().map(view -> tuple(view.getApp(), view.getUri(), view.getHits())).toList();
+    }
+
+    private void query(PreparedStatementCreator creator, RowCallbackHandler handler) throws Exception {
+        Connection connection = mock(Connection.class);
+        List<String> sql = new ArrayList<>();
+        when(connection.prepareStatement(anyString())).thenAnswer(invocation -> {
+            sql.add(invocation.getArgument(0));
+            return mock(PreparedStatement.class);
+        });
+        creator.createPreparedStatement(connection);
+        if (sql.get(0).contains("stats_rollup_daily")) {
+            Map<String, List<EndpointHit>> rollup = new TreeMap<>();
+            hits.forEach(hit -> rollup.computeIfAbsent(hit.getUri(), k -> new ArrayList<>()).add(hit));
+            expiredHits.forEach(hit -> rollup.computeIfAbsent(hit.getUri(), k -> new ArrayList<>()).add(hit));
+            for (List<EndpointHit> group : rollup.values()) {
+                ResultSet rs = row(group.get(0));
+                when(rs.getLong("hits")).thenReturn((long) group.size());
+                when(rs.getTimestamp("first_bucket")).thenReturn(bucket(group.stream()
+                        .map(EndpointHit::getCreated).min(Comparator.naturalOrder()).orElseThrow()));
+                when(rs.getTimestamp("last_bucket")).thenReturn(bucket(group.stream()
+                        .map(EndpointHit::getCreated).max(Comparator.naturalOrder()).orElseThrow()));
+                handler.processRow(rs);
+            }
+        } else {
+            Set<List<String>> distinct = new HashSet<>();
+            for (EndpointHit hit : hits) {
+                if (distinct.add(List.of(hit.getUri(), hit.getIp()))) {
+                    ResultSet rs = row(hit);
+                    when(rs.getString("ip")).thenReturn(hit.getIp());
+                    handler.processRow(rs);
+                }
+            }
+        }
+    }
+
+    private ResultSet row(EndpointHit hit) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getInt("app_id")).thenReturn(1);
+        when(rs.getInt("uri_id")).thenReturn(uris.indexOf(hit.getUri()));
+        return rs;
+    }
+
+    private void save(EndpointHit... saved) {
+        for (EndpointHit hit : saved) {
+            hits.add(hit);
+        }
+    }
+
+    private EndpointHit hit(String uri, String ip) {
+        if (!uris.contains(uri)) {
+            uris.add(uri);
+        }
+        return EndpointHit.builder()
+                .app(APP)
+                .uri(uri)
+                .ip(ip)
+                .created(LocalDateTime.of(2024, 5, 1, 10, 0).plusMinutes(hits.size()))
+                .build();
+    }
+
+    private static Timestamp bucket(LocalDateTime created) {
+        return Timestamp.valueOf(created.toLocalDate().atStartOfDay());
+    }
+}
@@ -0,0 +1,67 @@
+package ru.practicum.stats.server.counter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongHashSetTest {
+
+    @Test
+    void ignoresDuplicates() {
+        LongHashSet set = new LongHashSet();
+
+        assertThat(set.add(42)).isTrue();
+        assertThat(set.add(42)).isFalse();
+        assertThat(set.size()).isEqualTo(1);
+    }
+
+    @Test
+    void storesZeroSeparately() {
+        LongHashSet set = new LongHashSet();
+
+        assertThat(set.add(0)).isTrue();
+        assertThat(set.add(0)).isFalse();
+        assertThat(set.add(1)).isTrue();
+
+        assertThat(set.size()).isEqualTo(2);
+        assertThat(values(set)).containsExactlyInAnyOrder(0L, 1L);
+    }
+
+    @Test
+    void keepsValuesWithCollidingSlotsAcrossResizes() {
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+        for (long i = 1; i <= 1000; i++) {
+            long value = i << 32 | i;
+            set.add(value);
+            expected.add(value);
+        }
+
+        assertThat(set.size()).isEqualTo(1000);
+        assertThat(values(set)).containsExactlyInAnyOrderElementsOf(expected);
+    }
+
+    @Test
+    void matchesHashSetOnRandomInput() {
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 50_000; i++) {
+            long value = random.nextInt(20_000) - 10_000L;
+            assertThat(set.add(value)).isEqualTo(expected.add(value));
+        }
+
+        assertThat(set.size()).isEqualTo(expected.size());
+        assertThat(values(set)).containsExactlyInAnyOrderElementsOf(expected);
+    }
+
+    private static Set<Long> values(LongHashSet set) {
+        Set<Long> values = new HashSet<>();
+        set.forEach(values::add);
+        return values;
+    }
+}
@@ -0,0 +1,81 @@
+package ru.practicum.stats.server.ingest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.server.cache.StatsQueryCache;
+import ru.practicum.stats.server.counter.HitCounterStore;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.repository.StatsBatchRepository;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HitBatchWriterTest {
+    private final StatsBatchRepository batchRepository = mock(StatsBatchRepository.class);
+    private final HitCounterStore counterStore = mock(HitCounterStore.class);
+    private HitBatchWriter batchWriter;
+
+    @BeforeEach
+    void setUp() {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        batchWriter = new HitBatchWriter(batchRepository, mock(StatsQueryCache.class), counterStore,
+                new TransactionTemplate(transactionManager), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void skipsRowsRejectedByDatabase() {
+        EndpointHit bad = hit("/events/1");
+        EndpointHit good = hit("/events/2");
+        doThrow(new DataIntegrityViolationException("invalid input", new SQLException("invalid input", "22P02")))
+                .when(batchRepository).saveAll(List.of(bad));
+
+        List<EndpointHit> rejected = batchWriter.writeEach(List.of(bad, good));
+
+        assertThat(rejected).containsExactly(bad);
+        verify(batchRepository).saveAll(List.of(good));
+        verify(counterStore).recordOnCommit(List.of(good));
+    }
+
+    @Test
+    void rethrowsTransientErrors() {
+        doThrow(new TransientDataAccessResourceException("connection lost"))
+                .when(batchRepository).saveAll(any());
+
+        assertThatThrownBy(() -> batchWriter.writeEach(List.of(hit("/events/1"))))
+                .isInstanceOf(TransientDataAccessResourceException.class);
+    }
+
+    @Test
+    void classifiesErrorsBySqlState() {
+        assertThat(HitBatchWriter.isDataError(new DataIntegrityViolationException("duplicate",
+                new SQLException("duplicate", "23505")))).isTrue();
+        assertThat(HitBatchWriter.isTransient(new DataIntegrityViolationException("serialization",
+                new SQLException("serialization", "40001")))).isTrue();
+        assertThat(HitBatchWriter.isDataError(new TransientDataAccessResourceException("lost"))).isFalse();
+    }
+
+    private static EndpointHit hit(String uri) {
+        return EndpointHit.builder()
+                .app("ewm-main-service")
+                .uri(uri)
+                .ip("192.168.0.1")
+                .created(LocalDateTime.of(2024, 5, 1, 10, 0))
+                .build();
+    }
+}
@@ -0,0 +1,121 @@
+package ru.practicum.stats.server.ingest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.dao.DataIntegrityViolationException;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.thread.BackgroundThreads;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HitIngestionQueueTest {
+    private final HitIngestProperties properties = new HitIngestProperties();
+    private final HitBatchWriter batchWriter = mock(HitBatchWriter.class);
+    private final List<List<String>> written = Collections.synchronizedList(new ArrayList<>());
+    private HitIngestionQueue ingestionQueue;
+
+    @BeforeEach
+    void setUp() {
+        properties.setAsync(true);
+        properties.setBatchSize(2);
+        properties.setFlushInterval(Duration.ofMillis(20));
+        properties.setShutdownTimeout(Duration.ofSeconds(1));
+        ingestionQueue = new HitIngestionQueue(properties, batchWriter,
+                new BackgroundThreads(new StandardEnvironment()), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        ingestionQueue.stop();
+    }
+
+    @Test
+    void rejectsHitsWhenAsyncIngestionIsDisabled() {
+        properties.setAsync(false);
+        ingestionQueue.start();
+
+        assertThat(ingestionQueue.offer(hit("/events/1"))).isFalse();
+    }
+
+    @Test
+    void writesQueuedHitsInBatches() {
+        doAnswer(invocation -> written.add(uris(invocation.getArgument(0)))).when(batchWriter).write(anyList());
+        ingestionQueue.start();
+
+        assertThat(ingestionQueue.offer(hit("/events/1"))).isTrue();
+        assertThat(ingestionQueue.offer(hit("/events/2"))).isTrue();
+        assertThat(ingestionQueue.offer(hit("/events/3"))).isTrue();
+        ingestionQueue.stop();
+
+        assertThat(written).allSatisfy(batch -> assertThat(batch).hasSizeLessThanOrEqualTo(2));
+        assertThat(written.stream().flatMap(List::stream))
+                .containsExactly("/events/1", "/events/2", "/events/3");
+    }
+
+    @Test
+    void retriesFailedBatchRowByRow() {
+        doThrow(new DataIntegrityViolationException("bad row")).when(batchWriter).write(anyList());
+        when(batchWriter.writeEach(anyList())).thenAnswer(invocation -> {
+            written.add(uris(invocation.getArgument(0)));
+            return List.of();
+        });
+        ingestionQueue.start();
+
+        ingestionQueue.offer(hit("/events/1"));
+        ingestionQueue.offer(hit("/events/2"));
+        ingestionQueue.stop();
+
+        verify(batchWriter).writeEach(anyList());
+        assertThat(written).containsExactly(List.of("/events/1", "/events/2"));
+    }
+
+    @Test
+    void keepsWritingAfterRowByRowRetryFails() {
+        properties.setBatchSize(1);
+        doAnswer(invocation -> {
+            List<String> batch = uris(invocation.getArgument(0));
+            if (batch.contains("/events/1")) {
+                throw new IllegalStateException("database is down");
+            }
+            return written.add(batch);
+        }).when(batchWriter).write(anyList());
+        when(batchWriter.writeEach(anyList())).thenThrow(new IllegalStateException("database is down"));
+        ingestionQueue.start();
+
+        ingestionQueue.offer(hit("/events/1"));
+        verify(batchWriter, timeout(1000)).writeEach(anyList());
+        ingestionQueue.offer(hit("/events/2"));
+        ingestionQueue.stop();
+
+        assertThat(written).containsExactly(List.of("/events/2"));
+    }
+
+    private static List<String> uris(List<EndpointHit> batch) {
+        return batch.stream().map(EndpointHit::getUri).toList();
+    }
+
+    private static EndpointHit hit(String uri) {
+        return EndpointHit.builder()
+                .app("ewm-main-service")
+                .uri(uri)
+                .ip("192.168.0.1")
+                .created(LocalDateTime.of(2024, 5, 1, 10, 0))
+                .build();
+    }
+}
@@ -0,0 +1,59 @@
+package ru.practicum.stats.server.mapper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IpAddressMapperTest {
+
+    @Test
+    void mapsIpv4IntoPrefixedKey() {
+        assertThat(IpAddressMapper.toKey("192.168.0.1")).isEqualTo(0xFFFF_C0A8_0001L);
+        assertThat(IpAddressMapper.toKey("0.0.0.0")).isEqualTo(0xFFFF_0000_0000L);
+    }
+
+    @Test
+    void mapsIpv4MappedIpv6ToSameKeyAsIpv4() {
+        assertThat(IpAddressMapper.toKey("::ffff:192.168.0.1")).isEqualTo(IpAddressMapper.toKey("192.168.0.1"));
+        assertThat(IpAddressMapper.toKey("::ffff:c0a8:1")).isEqualTo(IpAddressMapper.toKey("192.168.0.1"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"::", "::1", "2001:db8::1", "2001:db8:0:0:0:0:2:1", "1::", "1:2:3:4:5:6:7::",
+            "::2:3:4:5:6:7:8", "fe80::1:2", "::1.2.3.4", "2001:DB8::A"})
+    void mapsIpv6LikeTheJdkParser(String ip) throws Exception {
+        ByteBuffer bytes = ByteBuffer.wrap(InetAddress.getByName(ip).getAddress());
+        long expected = (bytes.getLong() * 0x9E3779B97F4A7C15L) ^ bytes.getLong();
+
+        assertThat(IpAddressMapper.toKey(ip)).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"::", "::1", "2001:db8::1", "fe80::1:2", "2001:DB8::A", "1:2:3:4:5:6:7:8"})
+    void keepsAllBitsOfIpv6(String ip) throws Exception {
+        ByteBuffer bytes = ByteBuffer.wrap(InetAddress.getByName(ip).getAddress());
+
+        assertThat(IpAddressMapper.toIpv6(ip)).isEqualTo(new Ipv6Address(bytes.getLong(), bytes.getLong()));
+    }
+
+    @Test
+    void keepsIpv4MappedIpv6ApartFromIpv4() {
+        assertThat(IpAddressMapper.isIpv6("::ffff:192.168.0.1")).isTrue();
+        assertThat(IpAddressMapper.isIpv6("192.168.0.1")).isFalse();
+        assertThat(IpAddressMapper.toIpv6("::ffff:192.168.0.1")).isEqualTo(new Ipv6Address(0, 0xFFFF_C0A8_0001L));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "1.2.3", "1.2.3.4.5", "256.1.1.1", "1..2.3", "localhost", "example.com",
+            "fe80::1%eth0", "fe80::1%1", "[::1]", ":::", "1:::2", "1::2::3", ":1::2", "1::2:", "1:2:3:4:5:6:7:8:9",
+            "1:2:3:4:5:6:7", "12345::1", "g::1", "1.2.3.4::", "::1.2.3"})
+    void rejectsAnythingButLiterals(String ip) {
+        assertThatThrownBy(() -> IpAddressMapper.toKey(ip)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,76 @@
+package ru.practicum.stats.server.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RollupRangeTest {
+
+    @Test
+    void splitsWindowIntoRawHourlyAndDailyParts() {
+        RollupRange range = RollupRange.of(
+                LocalDateTime.of(2024, 5, 1, 10, 30),
+                LocalDateTime.of(2024, 5, 4, 7, 15));
+
+        assertThat(range.getHourStart()).isEqualTo(LocalDateTime.of(2024, 5, 1, 11, 0));
+        assertThat(range.getDayStart()).isEqualTo(LocalDateTime.of(2024, 5, 2, 0, 0));
+        assertThat(range.getDayEnd()).isEqualTo(LocalDateTime.of(2024, 5, 4, 0, 0));
+        assertThat(range.getHourEnd()).isEqualTo(LocalDateTime.of(2024, 5, 4, 7, 0));
+    }
+
+    @Test
+    void keepsAlignedEdges() {
+        RollupRange range = RollupRange.of(
+                LocalDateTime.of(2024, 5, 1, 0, 0),
+                LocalDateTime.of(2024, 5, 3, 0, 0));
+
+        assertThat(range.getHourStart()).isEqualTo(LocalDateTime.of(2024, 5, 1, 0, 0));
+        assertThat(range.getDayStart()).isEqualTo(LocalDateTime.of(2024, 5, 1, 0, 0));
+        assertThat(range.getDayEnd()).isEqualTo(LocalDateTime.of(2024, 5, 3, 0, 0));
+        assertThat(range.getHourEnd()).isEqualTo(LocalDateTime.of(2024, 5, 3, 0, 0));
+    }
+
+    @Test
+    void roundsUpSubSecondStart() {
+        RollupRange range = RollupRange.of(
+                LocalDateTime.of(2024, 5, 1, 9, 0, 0, 1),
+                LocalDateTime.of(2024, 5, 1, 12, 0));
+
+        assertThat(range.getHourStart()).isEqualTo(LocalDateTime.of(2024, 5, 1, 10, 0));
+        assertThat(range.getHourEnd()).isEqualTo(LocalDateTime.of(2024, 5, 1, 12, 0));
+    }
+
+    @Test
+    void usesNoDailyRollupsWithoutWholeDay() {
+        RollupRange range = RollupRange.of(
+                LocalDateTime.of(2024, 5, 1, 10, 30),
+                LocalDateTime.of(2024, 5, 2, 7, 15));
+
+        assertThat(range.getHourStart()).isEqualTo(LocalDateTime.of(2024, 5, 1, 11, 0));
+        assertThat(range.getHourEnd()).isEqualTo(LocalDateTime.of(2024, 5, 2, 7, 0));
+        assertThat(range.getDayStart()).isEqualTo(range.getHourStart());
+        assertThat(range.getDayEnd()).isEqualTo(range.getHourStart());
+    }
+
+    @Test
+    void usesOnlyRawHitsWithoutWholeHour() {
+        LocalDateTime start = LocalDateTime.of(2024, 5, 1, 10, 30);
+        RollupRange range = RollupRange.of(start, LocalDateTime.of(2024, 5, 1, 11, 15));
+
+        assertThat(range.getHourStart()).isEqualTo(start);
+        assertThat(range.getHourEnd()).isEqualTo(start);
+        assertThat(range.getDayStart()).isEqualTo(start);
+        assertThat(range.getDayEnd()).isEqualTo(start);
+    }
+
+    @Test
+    void usesOnlyRawHitsForEmptyOrReversedWindow() {
+        LocalDateTime start = LocalDateTime.of(2024, 5, 3, 0, 0);
+        RollupRange range = RollupRange.of(start, LocalDateTime.of(2024, 5, 1, 0, 0));
+
+        assertThat(range.getHourStart()).isEqualTo(start);
+        assertThat(range.getHourEnd()).isEqualTo(start);
+    }
+}
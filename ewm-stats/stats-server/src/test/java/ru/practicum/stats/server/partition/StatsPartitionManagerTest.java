@@ -0,0 +1,81 @@
+package ru.practicum.stats.server.partition;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StatsPartitionManagerTest {
+    private static final String DELETE_DEFAULT = "DELETE FROM public.stats_default WHERE created < ?";
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final StatsPartitionProperties properties = new StatsPartitionProperties();
+    private StatsPartitionManager partitionManager;
+
+    @BeforeEach
+    void setUp() {
+        properties.setInterval(PartitionInterval.DAY);
+        properties.setPrecreate(0);
+        properties.setRetention(Duration.ofDays(30));
+        when(jdbcTemplate.queryForObject(eq("SELECT to_regclass(?) IS NOT NULL"), eq(Boolean.class), anyString()))
+                .thenReturn(true);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        partitionManager = new StatsPartitionManager(jdbcTemplate, new TransactionTemplate(transactionManager),
+                properties, eventPublisher);
+    }
+
+    @Test
+    void deletesExpiredHitsFromDefaultPartition() {
+        partitions("stats_default");
+        when(jdbcTemplate.update(eq(DELETE_DEFAULT), any(Timestamp.class))).thenReturn(5);
+        LocalDateTime expected = LocalDateTime.now().minusDays(30).toLocalDate().atStartOfDay();
+
+        partitionManager.maintain();
+
+        verify(jdbcTemplate).update(DELETE_DEFAULT, Timestamp.valueOf(expected));
+        verify(jdbcTemplate, never()).execute("DROP TABLE public.stats_default");
+        verify(eventPublisher).publishEvent(any(ExpiredPartitionsDroppedEvent.class));
+    }
+
+    @Test
+    void dropsExpiredPartitionsOnly() {
+        partitions("stats_default", "stats_p20000101", "stats_p21000101");
+
+        partitionManager.maintain();
+
+        verify(jdbcTemplate).execute("DROP TABLE public.stats_p20000101");
+        verify(jdbcTemplate, never()).execute("DROP TABLE public.stats_p21000101");
+        verify(eventPublisher).publishEvent(any(ExpiredPartitionsDroppedEvent.class));
+    }
+
+    @Test
+    void doesNotPublishWhenNothingExpired() {
+        partitions("stats_default", "stats_p21000101");
+
+        partitionManager.maintain();
+
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    private void partitions(String... names) {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class))).thenReturn(List.of(names));
+    }
+}
@@ -0,0 +1,102 @@
+package ru.practicum.stats.server.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class HyperLogLogTest {
+
+    @Test
+    void countsSmallSetsExactly() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (long i = 0; i < 100; i++) {
+            sketch.add(i);
+            sketch.add(i);
+        }
+
+        assertThat(sketch.estimate()).isEqualTo(100);
+    }
+
+    @Test
+    void estimatesLargeSetsWithinErrorBound() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (long i = 0; i < 1_000_000; i++) {
+            sketch.add(i);
+        }
+
+        assertThat((double) sketch.estimate()).isCloseTo(1_000_000, within(50_000.0));
+    }
+
+    @Test
+    void emptySketchEstimatesZero() {
+        assertThat(new HyperLogLog().estimate()).isZero();
+        assertThat(HyperLogLog.fromBytes(new HyperLogLog().toBytes()).estimate()).isZero();
+    }
+
+    @Test
+    void roundTripsSparseSketch() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (long i = 0; i < 50; i++) {
+            sketch.add(i);
+        }
+
+        byte[] bytes = sketch.toBytes();
+
+        assertThat(bytes[0]).isEqualTo((byte) 1);
+        assertThat(bytes).hasSizeLessThan(1 + 50 * 3 + 1);
+        assertThat(HyperLogLog.fromBytes(bytes).toBytes()).isEqualTo(bytes);
+        assertThat(HyperLogLog.fromBytes(bytes).estimate()).isEqualTo(sketch.estimate());
+    }
+
+    @Test
+    void roundTripsDenseSketch() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (long i = 0; i < 100_000; i++) {
+            sketch.add(i);
+        }
+
+        byte[] bytes = sketch.toBytes();
+
+        assertThat(bytes[0]).isEqualTo((byte) 0);
+        assertThat(bytes).hasSize(1 + (1 << HyperLogLog.PRECISION));
+        assertThat(HyperLogLog.fromBytes(bytes).toBytes()).isEqualTo(bytes);
+        assertThat(HyperLogLog.fromBytes(bytes).estimate()).isEqualTo(sketch.estimate());
+    }
+
+    @Test
+    void keepsHighRegistersInSparseForm() {
+        HyperLogLog sketch = new HyperLogLog();
+        sketch.addHash(0xFFF0_0000_0000_0001L);
+        sketch.addHash(0x0000_0000_0000_0000L);
+
+        HyperLogLog restored = HyperLogLog.fromBytes(sketch.toBytes());
+
+        assertThat(restored.toBytes()).isEqualTo(sketch.toBytes());
+        assertThat(restored.estimate()).isEqualTo(2);
+    }
+
+    @Test
+    void mergeMatchesSketchOfUnion() {
+        HyperLogLog left = new HyperLogLog();
+        HyperLogLog right = new HyperLogLog();
+        HyperLogLog union = new HyperLogLog();
+        for (long i = 0; i < 20_000; i++) {
+            (i % 2 == 0 ? left : right).add(i);
+            union.add(i);
+        }
+        for (long i = 0; i < 5_000; i++) {
+            right.add(i);
+        }
+
+        left.merge(right);
+
+        assertThat(left.toBytes()).isEqualTo(union.toBytes());
+    }
+
+    @Test
+    void hashesStringsConsistently() {
+        assertThat(HyperLogLog.hash("192.168.0.1")).isEqualTo(HyperLogLog.hash("192.168.0.1"));
+        assertThat(HyperLogLog.hash("192.168.0.1")).isNotEqualTo(HyperLogLog.hash("192.168.0.2"));
+    }
+}
@@ -0,0 +1,72 @@
+package ru.practicum.stats.server.trending;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpaceSavingTest {
+
+    @Test
+    void countsExactlyWhileUnderCapacity() {
+        SpaceSaving<String> summary = new SpaceSaving<>(3);
+        summary.offer("a", 2);
+        summary.offer("b", 1);
+        summary.offer("a", 3);
+
+        assertThat(totals(summary)).containsExactlyInAnyOrderEntriesOf(Map.of("a", 5L, "b", 1L));
+    }
+
+    @Test
+    void evictsSmallestCounterAndInheritsItsCount() {
+        SpaceSaving<String> summary = new SpaceSaving<>(2);
+        summary.offer("a", 5);
+        summary.offer("b", 2);
+        summary.offer("c", 1);
+
+        assertThat(totals(summary)).containsExactlyInAnyOrderEntriesOf(Map.of("a", 5L, "c", 3L));
+    }
+
+    @Test
+    void evictsOldestAmongEqualCounters() {
+        SpaceSaving<String> summary = new SpaceSaving<>(2);
+        summary.offer("a", 1);
+        summary.offer("b", 1);
+        summary.offer("c", 1);
+
+        assertThat(totals(summary)).containsOnlyKeys("b", "c");
+    }
+
+    @Test
+    void keepsHeavyHittersWithinErrorBound() {
+        int capacity = 50;
+        SpaceSaving<Integer> summary = new SpaceSaving<>(capacity);
+        Map<Integer, Long> exact = new HashMap<>();
+        Random random = new Random(42);
+        long total = 0;
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(10) < 5 ? random.nextInt(5) : 5 + random.nextInt(10_000);
+            summary.offer(key, 1);
+            exact.merge(key, 1L, Long::sum);
+            total++;
+        }
+        Map<Integer, Long> estimated = totals(summary);
+        long bound = total / capacity;
+        exact.forEach((key, count) -> {
+            if (count > bound) {
+                assertThat(estimated).containsKey(key);
+                assertThat(estimated.get(key)).isBetween(count, count + bound);
+            }
+        });
+        assertThat(estimated).hasSize(capacity);
+    }
+
+    private static <K> Map<K, Long> totals(SpaceSaving<K> summary) {
+        Map<K, Long> totals = new HashMap<>();
+        summary.addTo(totals);
+        return totals;
+    }
+}
@@ -0,0 +1,45 @@
+package ru.practicum.stats.server.wal;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.stats.server.model.EndpointHit;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HitRecordCodecTest {
+
+    @Test
+    void roundTripsHit() {
+        EndpointHit hit = EndpointHit.builder()
+                .app("ewm-main-service")
+                .uri("/events/1?тест")
+                .ip("2001:db8::1")
+                .created(LocalDateTime.of(2024, 5, 1, 10, 0, 0, 123_456_000))
+                .build();
+
+        EndpointHit decoded = HitRecordCodec.decode(HitRecordCodec.encode(hit));
+
+        assertThat(decoded.getApp()).isEqualTo(hit.getApp());
+        assertThat(decoded.getUri()).isEqualTo(hit.getUri());
+        assertThat(decoded.getIp()).isEqualTo(hit.getIp());
+        assertThat(decoded.getCreated()).isEqualTo(hit.getCreated());
+    }
+
+    @Test
+    void rejectsTruncatedRecordAsIllegalArgument() {
+        byte[] payload = HitRecordCodec.encode(EndpointHit.builder()
+                .app("a")
+                .uri("/x")
+                .ip("1.1.1.1")
+                .created(LocalDateTime.of(2024, 1, 1, 0, 0))
+                .build());
+
+        assertThatThrownBy(() -> HitRecordCodec.decode(Arrays.copyOf(payload, payload.length - 3)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> HitRecordCodec.decode(new byte[]{-1, -1, -1, -1}))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
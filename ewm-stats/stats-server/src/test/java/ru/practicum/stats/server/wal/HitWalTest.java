@@ -0,0 +1,142 @@
+package ru.practicum.stats.server.wal;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.server.ingest.HitBatchWriter;
+import ru.practicum.stats.server.ingest.HitIngestProperties;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.repository.WalCheckpointRepository;
+import ru.practicum.stats.server.thread.BackgroundThreads;
+import ru.practicum.stats.server.trending.TrendingStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HitWalTest {
+    @TempDir
+    Path directory;
+
+    private final HitWalProperties properties = new HitWalProperties();
+    private final HitIngestProperties ingestProperties = new HitIngestProperties();
+    private final HitBatchWriter batchWriter = mock(HitBatchWriter.class);
+    private final WalCheckpointRepository checkpointRepository = mock(WalCheckpointRepository.class);
+    private HitWal wal;
+
+    @BeforeEach
+    void setUp() {
+        properties.setEnabled(true);
+        properties.setDirectory(directory);
+        properties.setFsync(FsyncPolicy.NONE);
+        ingestProperties.setFlushInterval(Duration.ofMillis(10));
+        ingestProperties.setShutdownTimeout(Duration.ofMillis(200));
+        when(checkpointRepository.find(anyString())).thenReturn(Optional.empty());
+    }
+
+    @AfterEach
+    void tearDown() {
+        wal.stop();
+    }
+
+    @Test
+    void generatesInstanceIdOncePerDirectory() throws IOException {
+        wal = newWal();
+        wal.start();
+        wal.stop();
+        String instanceId = Files.readString(directory.resolve("instance-id"));
+
+        wal = newWal();
+        wal.start();
+
+        assertThat(instanceId).isNotBlank().isNotEqualTo("default");
+        verify(checkpointRepository, timeout(1000).times(2)).find(instanceId);
+    }
+
+    @Test
+    void keepsLegacyInstanceIdForExistingSegments() throws IOException {
+        WalSegment.create(directory, 5, 64).close();
+        wal = newWal();
+
+        wal.start();
+
+        assertThat(Files.readString(directory.resolve("instance-id"))).isEqualTo("default");
+        verify(checkpointRepository).find("default");
+    }
+
+    @Test
+    void prefersConfiguredInstanceId() {
+        properties.setInstanceId("stats-server-1");
+        wal = newWal();
+
+        wal.start();
+
+        verify(checkpointRepository).find("stats-server-1");
+        assertThat(directory.resolve("instance-id")).doesNotExist();
+    }
+
+    @Test
+    void stopsReplayWhenShutdownTimeoutExpires() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return null;
+        }).when(batchWriter).write(anyList());
+        ingestProperties.setBatchSize(1);
+        wal = newWal();
+        wal.start();
+        wal.append(hit("/events/1"));
+        wal.append(hit("/events/2"));
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Thread stopping = Thread.ofPlatform().start(wal::stop);
+        stopping.join(TimeUnit.SECONDS.toMillis(5));
+        assertThat(stopping.isAlive()).isFalse();
+        release.countDown();
+
+        verify(checkpointRepository, timeout(1000)).save(anyString(), any());
+        Thread.sleep(100);
+        verify(batchWriter).write(anyList());
+        verify(checkpointRepository).save(anyString(), any());
+    }
+
+    private HitWal newWal() {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        return new HitWal(properties, ingestProperties, batchWriter, checkpointRepository,
+                new TransactionTemplate(transactionManager), mock(TrendingStore.class),
+                new BackgroundThreads(new StandardEnvironment()), new SimpleMeterRegistry());
+    }
+
+    private static EndpointHit hit(String uri) {
+        return EndpointHit.builder()
+                .app("ewm-main-service")
+                .uri(uri)
+                .ip("192.168.0.1")
+                .created(LocalDateTime.of(2024, 5, 1, 10, 0))
+                .build();
+    }
+}
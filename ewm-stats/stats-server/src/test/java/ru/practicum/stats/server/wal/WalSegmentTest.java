@@ -0,0 +1,139 @@
+package ru.practicum.stats.server.wal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WalSegmentTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsRecordsInBatchesAndReturnsNextOffset() throws IOException {
+        WalSegment segment = WalSegment.create(directory, 1, 1024);
+        for (int i = 0; i < 5; i++) {
+            assertThat(segment.append(bytes("record-" + i))).isTrue();
+        }
+        List<String> read = new ArrayList<>();
+
+        int next = segment.read(0, segment.position(), 3, payload -> read.add(string(payload)));
+        int end = segment.read(next, segment.position(), 3, payload -> read.add(string(payload)));
+
+        assertThat(read).containsExactly("record-0", "record-1", "record-2", "record-3", "record-4");
+        assertThat(next).isEqualTo(3 * WalSegment.recordSize(bytes("record-0")));
+        assertThat(end).isEqualTo(segment.position());
+        segment.close();
+    }
+
+    @Test
+    void refusesRecordThatDoesNotFit() throws IOException {
+        WalSegment segment = WalSegment.create(directory, 1, 32);
+
+        assertThat(segment.append(new byte[20])).isTrue();
+        assertThat(segment.append(new byte[1])).isFalse();
+        segment.close();
+    }
+
+    @Test
+    void reopenedSegmentReadsUntilFirstEmptyRecord() throws IOException {
+        WalSegment segment = WalSegment.create(directory, 7, 256);
+        segment.append(bytes("a"));
+        segment.append(bytes("b"));
+        segment.force();
+        segment.close();
+
+        WalSegment reopened = WalSegment.open(directory.resolve(WalSegment.fileName(7)), 7);
+        List<String> read = new ArrayList<>();
+        reopened.read(0, reopened.capacity(), 10, payload -> read.add(string(payload)));
+
+        assertThat(read).containsExactly("a", "b");
+        reopened.close();
+    }
+
+    @Test
+    void skipsRecordWithBadChecksumAndReadsTheRest() throws IOException {
+        WalSegment segment = WalSegment.create(directory, 1, 256);
+        segment.append(bytes("good"));
+        segment.append(bytes("bad"));
+        segment.append(bytes("after"));
+        segment.force();
+        segment.close();
+        int corrupted = WalSegment.recordSize(bytes("good"));
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve(WalSegment.fileName(1)).toFile(), "rw")) {
+            file.seek(corrupted + 8);
+            file.write('x');
+        }
+
+        WalSegment reopened = WalSegment.open(directory.resolve(WalSegment.fileName(1)), 1);
+        List<String> read = new ArrayList<>();
+        int next = reopened.read(0, reopened.capacity(), 10, payload -> read.add(string(payload)));
+        int resynced = reopened.read(next, reopened.capacity(), 10, payload -> read.add(string(payload)));
+        reopened.read(resynced, reopened.capacity(), 10, payload -> read.add(string(payload)));
+
+        assertThat(next).isEqualTo(corrupted);
+        assertThat(resynced).isEqualTo(corrupted + WalSegment.recordSize(bytes("bad")));
+        assertThat(read).containsExactly("good", "after");
+        reopened.close();
+    }
+
+    @Test
+    void skipsRecordWithZeroedLengthInsideWrittenData() throws IOException {
+        WalSegment segment = WalSegment.create(directory, 1, 256);
+        segment.append(bytes("lost"));
+        segment.append(bytes("kept"));
+        segment.force();
+        segment.close();
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve(WalSegment.fileName(1)).toFile(), "rw")) {
+            file.writeInt(0);
+        }
+
+        WalSegment reopened = WalSegment.open(directory.resolve(WalSegment.fileName(1)), 1);
+        List<String> read = new ArrayList<>();
+        int next = reopened.read(0, reopened.capacity(), 10, payload -> read.add(string(payload)));
+        int end = reopened.read(next, reopened.capacity(), 10, payload -> read.add(string(payload)));
+
+        assertThat(read).containsExactly("kept");
+        assertThat(reopened.read(end, reopened.capacity(), 10, payload -> read.add(string(payload))))
+                .isEqualTo(reopened.capacity());
+        reopened.close();
+    }
+
+    @Test
+    void deadLetterLogStartsNewSegmentAfterExistingOnes() throws IOException {
+        Path deadLetters = directory.resolve("dead-letter");
+        Files.createDirectories(deadLetters);
+        WalSegment.create(deadLetters, 3, 64).close();
+        WalDeadLetterLog log = new WalDeadLetterLog(deadLetters, 64);
+
+        Path first = log.append(bytes("poison-1"));
+        Path second = log.append(bytes("poison-2"));
+        Path third = log.append(new byte[40]);
+        log.close();
+
+        assertThat(first).isEqualTo(deadLetters.resolve(WalSegment.fileName(4)));
+        assertThat(second).isEqualTo(first);
+        assertThat(third).isEqualTo(deadLetters.resolve(WalSegment.fileName(5)));
+        List<String> read = new ArrayList<>();
+        WalSegment segment = WalSegment.open(first, 4);
+        segment.read(0, segment.capacity(), 10, payload -> read.add(string(payload)));
+        segment.close();
+        assertThat(read).containsExactly("poison-1", "poison-2");
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] payload) {
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+}